@@ -0,0 +1,81 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.config;
+
+import io.micrometer.core.instrument.Counter;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.PasswordHashingRejectedException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link PasswordEncoder} que ejecuta {@code encode} y {@code matches} en un ejecutor propio
+ * de tamaño fijo y cola acotada.
+ * <p>
+ * El hilo de Tomcat queda aparcado esperando el resultado (sin consumir CPU), así que una
+ * avalancha de logins como mucho ocupa los hilos de hashing y el resto de páginas sigue
+ * respondiendo. Si la cola está llena, o la espera supera el límite, se rechaza en el acto
+ * con {@link PasswordHashingRejectedException}.
+ * </p>
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ExecutorService executor;
+    private final Duration maxWait;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, ExecutorService executor, Duration maxWait, Counter rejected) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxWait = maxWait;
+        this.rejected = rejected;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // Solo compara el coste guardado con el configurado: no necesita el ejecutor
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException("queue full");
+        }
+        try {
+            return future.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new PasswordHashingRejectedException("timed out after " + maxWait);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
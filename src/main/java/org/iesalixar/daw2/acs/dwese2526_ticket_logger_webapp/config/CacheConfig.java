@@ -0,0 +1,74 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configura la cache de lectura para los datos de referencia (regiones y provincias).
+ * <p>
+ * Estos datos cambian muy pocas veces al año, por lo que los listados y detalles se guardan
+ * en memoria (Caffeine) con un tamaño máximo y un tiempo de vida. Los servicios invalidan
+ * las entradas afectadas en cada {@code create}, {@code update} y {@code delete}.
+ * </p>
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+    /** Páginas del listado de regiones (clave: page/size/sort). */
+    public static final String REGIONS_PAGE = "regions.page";
+
+    /** Lista completa de regiones. */
+    public static final String REGIONS_ALL = "regions.all";
+
+    /** Detalle de una región con una página de sus provincias (clave: id/cursor/size). */
+    public static final String REGION_DETAIL = "regions.detail";
+
+    /** Páginas del listado de provincias (clave: page/size/sort). */
+    public static final String PROVINCES_PAGE = "provinces.page";
+
+    /** Lista completa de provincias. */
+    public static final String PROVINCES_ALL = "provinces.all";
+
+    @Value("${app.cache.reference-data.maximum-size:500}")
+    private long maximumSize;
+
+    @Value("${app.cache.reference-data.expire-after-write:10m}")
+    private Duration expireAfterWrite;
+
+    /**
+     * Crea el {@link CacheManager} basado en Caffeine.
+     * <p>
+     * Se envuelve en un {@link TransactionAwareCacheManagerProxy}: las invalidaciones se aplican
+     * tras el commit, de modo que una lectura concurrente no pueda volver a cachear datos
+     * anteriores a la escritura.
+     * Con {@code recordStats} Actuator publica los contadores de aciertos, fallos y expulsiones.
+     * </p>
+     *
+     * @return gestor de caches con las caches de datos de referencia ya creadas.
+     */
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats());
+        cacheManager.setCacheNames(List.of(REGIONS_PAGE, REGIONS_ALL, REGION_DETAIL, PROVINCES_PAGE, PROVINCES_ALL));
+        logger.info("CacheManager configurado: maximumSize={}, expireAfterWrite={}", maximumSize, expireAfterWrite);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,128 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configura el hashing de contraseñas: ejecutor acotado y coste de BCrypt calibrado.
+ * <p>
+ * Todas las operaciones BCrypt (login, alta/edición de usuarios, restablecimiento de
+ * contraseña) pasan por el {@link PasswordEncoder} de este fichero, que las ejecuta en
+ * {@code app.security.password.hashing-threads} hilos con una cola de
+ * {@code app.security.password.queue-capacity} tareas. Actuator publica el tamaño de la cola,
+ * los hilos activos y los rechazos ({@code executor.*{name=password.hashing}} y
+ * {@code password.hashing.rejected}).
+ * </p>
+ */
+@Configuration
+public class PasswordHashingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingConfig.class);
+
+    private static final String EXECUTOR_NAME = "password.hashing";
+
+    @Value("${app.security.password.hashing-threads:0}")
+    private int hashingThreads;
+
+    @Value("${app.security.password.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${app.security.password.max-wait:5s}")
+    private Duration maxWait;
+
+    @Value("${app.security.password.target-hash-time:250ms}")
+    private Duration targetHashTime;
+
+    @Value("${app.security.password.min-strength:10}")
+    private int minStrength;
+
+    @Value("${app.security.password.max-strength:14}")
+    private int maxStrength;
+
+    /** Ejecutor de hashing; no se publica como bean para no sustituir al ejecutor de tareas de Spring Boot. */
+    private ExecutorService hashingExecutor;
+
+    /**
+     * Codificador de contraseñas de la aplicación: BCrypt con el coste calibrado, ejecutado
+     * siempre en un ejecutor de tamaño fijo. Con {@code hashing-threads=0} usa la mitad de los
+     * procesadores (al menos uno), dejando CPU libre para el resto de peticiones.
+     *
+     * @param meterRegistry registro de métricas de Actuator.
+     * @return {@link PasswordEncoder} acotado.
+     */
+    @Bean
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        int threads = hashingThreads > 0
+                ? hashingThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        hashingExecutor = ExecutorServiceMetrics.monitor(meterRegistry, executor, EXECUTOR_NAME);
+
+        Counter rejected = Counter.builder(EXECUTOR_NAME + ".rejected")
+                .description("Operaciones BCrypt rechazadas por saturación del ejecutor")
+                .register(meterRegistry);
+        int strength = calibrateStrength();
+        logger.info("Hashing de contraseñas: hilos={}, cola={}, espera máxima={}, coste BCrypt={}",
+                threads, queueCapacity, maxWait, strength);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), hashingExecutor, maxWait, rejected);
+    }
+
+    @PreDestroy
+    void shutdownHashingExecutor() {
+        if (hashingExecutor != null) {
+            hashingExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Elige el mayor coste de BCrypt (entre {@code min-strength} y {@code max-strength}) cuyo
+     * hash tarda como mucho {@code target-hash-time} en esta máquina. Cada punto de coste
+     * duplica el tiempo, así que se para en cuanto el siguiente se pasaría del objetivo.
+     * Los hashes guardados con un coste menor se actualizan en el siguiente login correcto.
+     */
+    private int calibrateStrength() {
+        long targetNanos = targetHashTime.toNanos();
+        // Calentamiento: la primera ejecución incluye la carga de clases y el JIT
+        new BCryptPasswordEncoder(minStrength).encode("calibration");
+
+        int strength = minStrength;
+        long nanos = 0;
+        while (strength < maxStrength) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            nanos = System.nanoTime() - start;
+            if (nanos * 2 > targetNanos) {
+                break;
+            }
+            strength++;
+        }
+        logger.info("Coste de BCrypt calibrado: {} (último hash medido {} ms, objetivo {} ms)",
+                strength, TimeUnit.NANOSECONDS.toMillis(nanos), targetHashTime.toMillis());
+        return strength;
+    }
+}
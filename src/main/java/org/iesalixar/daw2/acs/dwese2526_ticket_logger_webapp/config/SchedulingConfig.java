@@ -0,0 +1,13 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Activa las tareas periódicas ({@code @Scheduled}) de la aplicación, como el volcado
+ * en lote de los contadores de login.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
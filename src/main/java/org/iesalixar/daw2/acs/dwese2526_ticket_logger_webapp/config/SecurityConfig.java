@@ -2,12 +2,16 @@ package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.config;
 
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.handlers.CustomOAuth2FailureHandler;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.handlers.CustomOAuth2SuccessHandler;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.handlers.LoginThrottleFilter;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.LoginThrottleService;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -15,11 +19,13 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 /**
  * Configura la seguridad de la aplicación, definiendo autenticación y autorización
@@ -33,14 +39,53 @@ public class SecurityConfig {
     @Autowired
     private UserDetailsService customUserDetailService;
 
+    @Autowired
+    private UserDetailsPasswordService userDetailsPasswordService;
+
+    // BCrypt calibrado y acotado, definido en PasswordHashingConfig
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
     @Autowired
     private CustomOAuth2FailureHandler customOAuth2FailureHandler;
 
     @Autowired
     private CustomOAuth2SuccessHandler customOAuth2SuccessHandler;
 
+    @Autowired
+    private LoginThrottleService loginThrottleService;
+
     private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
 
+    /**
+     * Cadena de seguridad reducida para los ficheros subidos ({@code /uploads/**}).
+     * <p>
+     * Se evalúa antes que la general y solo comprueba que haya un usuario autenticado en la
+     * sesión (en memoria, sin consultar la base de datos): sin login, OAuth2, CSRF, caché de
+     * peticiones ni creación de sesiones. Sin sesión responde 401 en lugar de redirigir al
+     * login. Las cabeceras de no-cache se desactivan porque {@code UploadController} sirve
+     * los ficheros como inmutables.
+     * </p>
+     *
+     * @param http instancia de {@link HttpSecurity} para configurar la seguridad.
+     * @return cadena de seguridad para {@code /uploads/**}.
+     * @throws Exception si ocurre un error en la configuración de seguridad.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain uploadsSecurityFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher("/uploads/**")
+                .authorizeHttpRequests(auth -> auth.anyRequest().authenticated())
+                .csrf(csrf -> csrf.disable())
+                .requestCache(cache -> cache.disable())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.NEVER))
+                .headers(headers -> headers.cacheControl(cacheControl -> cacheControl.disable()))
+                .exceptionHandling(ex -> ex.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)));
+        return http.build();
+    }
+
+
     /**
      * Configura el filtro de seguridad para las solicitudes HTTP, especificando las
      * rutas permitidas y los roles necesarios para acceder a diferentes endpoints.
@@ -67,6 +112,9 @@ public class SecurityConfig {
                             .requestMatchers("/regions**").hasAnyRole("ADMIN", "MANAGER")
                             .requestMatchers("/provinces**").hasRole("MANAGER")   // Solo MANAGER
                             .requestMatchers("/profile**").hasRole("USER")                    // Solo USER
+                            // ACTUATOR: health público; métricas y caches (DELETE vacía todas) solo ADMIN
+                            .requestMatchers("/actuator/health").permitAll()
+                            .requestMatchers("/actuator/**").hasRole("ADMIN")
                             .anyRequest().authenticated();           // Cualquier otra solicitud requiere autenticación
                 })
                 .formLogin(form -> form
@@ -83,6 +131,9 @@ public class SecurityConfig {
                         .failureHandler(customOAuth2FailureHandler)
                 )
 
+                // Intentos de login por encima del límite: se rechazan antes de autenticar
+                .addFilterBefore(new LoginThrottleFilter(loginThrottleService), UsernamePasswordAuthenticationFilter.class)
+
                 .sessionManagement(session -> {
                     logger.debug("Configurando política de gestión de sesiones");
                     // Usa sesiones cuando sea necesario
@@ -107,26 +158,13 @@ public class SecurityConfig {
 
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         provider.setUserDetailsService(customUserDetailService);
-        provider.setPasswordEncoder(passwordEncoder());
+        provider.setPasswordEncoder(passwordEncoder);
+        // Tras un login correcto, los hashes con un coste menor al calibrado se regeneran
+        provider.setUserDetailsPasswordService(userDetailsPasswordService);
 
         logger.info("Saliendo del método daoAuthenticationProvider");
         return provider;
     }
-
-
-    /**
-     * Configura el codificador de contraseñas para cifrar las contraseñas de los usuarios
-     * utilizando BCrypt.
-     *
-     * @return una instancia de {@link PasswordEncoder} que utiliza BCrypt para cifrar contraseñas.
-     */
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        logger.info("Entrando en el método passwordEncoder");
-        PasswordEncoder encoder = new BCryptPasswordEncoder();
-        logger.info("Saliendo del método passwordEncoder");
-        return encoder;
-    }
 }
 
 
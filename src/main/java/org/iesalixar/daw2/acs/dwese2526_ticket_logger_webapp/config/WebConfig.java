@@ -0,0 +1,34 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.config;
+
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.handlers.ReferenceDataEtagInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuración MVC adicional: interceptores de respuesta condicional.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebConfig.class);
+
+    @Autowired
+    private ReferenceDataEtagInterceptor referenceDataEtagInterceptor;
+
+    /**
+     * Registra el interceptor de ETag solo en las páginas de datos de referencia que
+     * se consultan de forma repetida.
+     *
+     * @param registry el registro de interceptores de Spring.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(referenceDataEtagInterceptor)
+                .addPathPatterns("/regions", "/regions/detail", "/provinces/detail");
+        logger.info("ReferenceDataEtagInterceptor registrado para /regions, /regions/detail y /provinces/detail");
+    }
+}
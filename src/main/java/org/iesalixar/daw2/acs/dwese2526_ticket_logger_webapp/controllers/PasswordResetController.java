@@ -1,9 +1,12 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.controllers;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.PasswordResetDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.PasswordResetRequestDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.PasswordHashingRejectedException;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.PasswordResetRateLimiter;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.PasswordResetService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
@@ -23,6 +26,7 @@ import java.util.Locale;
  * <ul>
  *   <li>No revela si el email existe (anti-enumeración).</li>
  *   <li>Token de un solo uso con caducidad.</li>
+ *   <li>Límite de peticiones por IP y por email ({@link PasswordResetRateLimiter}).</li>
  *   <li>Mensajes internacionalizados mediante {@link MessageSource}.</li>
  * </ul>
  * </p>
@@ -36,6 +40,10 @@ public class PasswordResetController {
     private PasswordResetService passwordResetService;
 
 
+    @Autowired
+    private PasswordResetRateLimiter passwordResetRateLimiter;
+
+
     @Autowired
     private MessageSource messageSource;
 
@@ -56,7 +64,9 @@ public class PasswordResetController {
     /**
      * Procesa la solicitud de recuperación y envía el email con el enlace si el usuario existe.
      * <p>
-     * La respuesta es siempre la misma para evitar ataques de enumeración de usuarios.
+     * La respuesta es siempre la misma para evitar ataques de enumeración de usuarios,
+     * también cuando la petición supera el límite por IP o por email (en ese caso no se
+     * consulta la base de datos ni se envía nada).
      * </p>
      *
      * @param dto                datos del formulario (email).
@@ -82,8 +92,11 @@ public class PasswordResetController {
         String userAgent = request.getHeader("User-Agent");
 
 
-        // No revela si existe el email (la lógica interna decide si envía o no)
-        passwordResetService.requestPasswordReset(dto.getEmail(), ip, userAgent);
+        // No revela si existe el email (la lógica interna decide si envía o no).
+        // Por encima del límite se descarta sin tocar BD ni SMTP, con la misma respuesta.
+        if (passwordResetRateLimiter.tryAcquire(ip, dto.getEmail())) {
+            passwordResetService.requestPasswordReset(dto.getEmail(), ip, userAgent);
+        }
 
 
         Locale locale = LocaleContextHolder.getLocale();
@@ -117,13 +130,17 @@ public class PasswordResetController {
      * @param dto                token + nueva contraseña + confirmación.
      * @param result             resultado de validación.
      * @param redirectAttributes mensajes flash.
+     * @param model              modelo para volver a mostrar el formulario.
+     * @param response           respuesta (503 si el hashing está saturado).
      * @return redirección a login si OK; si falla, vuelve a forgot con error genérico.
      */
     @PostMapping("/reset-password")
     public String handleResetPassword(
             @Valid @ModelAttribute("dto") PasswordResetDTO dto,
             BindingResult result,
-            RedirectAttributes redirectAttributes
+            RedirectAttributes redirectAttributes,
+            Model model,
+            HttpServletResponse response
     ) {
         // Validación cruzada (confirmación)
         if (dto.getNewPassword() != null && dto.getConfirmPassword() != null
@@ -155,6 +172,12 @@ public class PasswordResetController {
             String msg = messageSource.getMessage("msg.password-reset.invalid", null, locale);
             redirectAttributes.addFlashAttribute("errorMessage", msg);
             return "redirect:/auth/forgot-password";
+
+        } catch (PasswordHashingRejectedException ex) {
+            // Hashing saturado: la transacción se deshace y el token sigue valiendo; se reintenta
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            model.addAttribute("errorMessage", messageSource.getMessage("msg.password-reset.busy", null, locale));
+            return "views/reset-password/reset-password";
         }
     }
 }
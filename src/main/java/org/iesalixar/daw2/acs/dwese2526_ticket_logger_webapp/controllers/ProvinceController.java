@@ -1,25 +1,35 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.controllers;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.*;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.DuplicateResourceException;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.ResourceNotFoundException;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.CsvImportService;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.ExportService;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.ProvinceService;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.RegionService;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.TypeaheadService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Locale;
 
@@ -29,12 +39,24 @@ public class ProvinceController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProvinceController.class);
 
+    private static final int MAX_KEYSET_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_RESULTS = 50;
+
     @Autowired
     private ProvinceService provinceService;
 
     @Autowired
     private RegionService regionService;
 
+    @Autowired
+    private CsvImportService csvImportService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private TypeaheadService typeaheadService;
+
     @Autowired
     private MessageSource messageSource;
 
@@ -68,6 +90,61 @@ public class ProvinceController {
         return "views/province/province-list";
     }
 
+    // =========================
+    // GET /provinces?cursor=...  (paginacion por clave)
+    // =========================
+    @GetMapping(params = "cursor")
+    public String listProvincesKeyset(
+            @RequestParam("cursor") String cursor,
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            Model model,
+            Locale locale) {
+
+        try {
+            KeysetPageDTO<ProvinceDTO> keysetPage =
+                    provinceService.listKeyset(cursor, Math.max(1, Math.min(size, MAX_KEYSET_PAGE_SIZE)));
+            model.addAttribute("keysetPage", keysetPage);
+
+        } catch (Exception e) {
+            logger.error("Error listando provincias por cursor", e);
+            String errorMessage = messageSource.getMessage("msg.province-controller.list.error", null, locale);
+            model.addAttribute("errorMessage", errorMessage);
+        }
+        model.addAttribute("sortParam", "name,asc");
+
+        return "views/province/province-list";
+    }
+
+    // =========================
+    // GET /provinces?mode=slice  (solo "hay siguiente", total aproximado)
+    // =========================
+    @GetMapping(params = {"mode=slice", "!cursor"})
+    public String listProvincesSlice(
+            @PageableDefault(size = 10, sort = "name", direction = Sort.Direction.ASC) Pageable pageable,
+            Model model,
+            Locale locale) {
+
+        try {
+            Slice<ProvinceDTO> slice = provinceService.listSlice(pageable);
+            model.addAttribute("slice", slice);
+            model.addAttribute("approxTotal", provinceService.approximateTotal());
+
+            String sortParam = "name,asc";
+            if (slice.getSort().isSorted()) {
+                Sort.Order order = slice.getSort().iterator().next();
+                sortParam = order.getProperty() + "," + order.getDirection().name().toLowerCase();
+            }
+            model.addAttribute("sortParam", sortParam);
+
+        } catch (Exception e) {
+            logger.error("Error listando provincias en modo slice", e);
+            String errorMessage = messageSource.getMessage("msg.province-controller.list.error", null, locale);
+            model.addAttribute("errorMessage", errorMessage);
+        }
+
+        return "views/province/province-list";
+    }
+
     // =========================
     // GET /provinces/new
     // =========================
@@ -111,6 +188,51 @@ public class ProvinceController {
         }
     }
 
+    // =========================
+    // POST /provinces/import  (CSV: code,name,regionCode)
+    // =========================
+    @PostMapping("/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public String importProvinces(
+            @RequestParam("file") MultipartFile file,
+            RedirectAttributes redirectAttributes,
+            Locale locale) {
+
+        if (file.isEmpty()) {
+            String msg = messageSource.getMessage("msg.import.empty", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", msg);
+            return "redirect:/provinces";
+        }
+
+        try {
+            ImportResultDTO result = csvImportService.importProvinces(file);
+            String msg = messageSource.getMessage(
+                    "msg.import.result",
+                    new Object[]{result.getInserted(), result.getProcessed(), result.getRejected()},
+                    locale
+            );
+            redirectAttributes.addFlashAttribute("successMessage", msg);
+            redirectAttributes.addFlashAttribute("importErrors", result.getErrors());
+
+        } catch (Exception e) {
+            logger.error("Error importando provincias desde CSV", e);
+            String msg = messageSource.getMessage("msg.import.error", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", msg);
+        }
+        return "redirect:/provinces";
+    }
+
+    // =========================
+    // GET /provinces/search?q=
+    // =========================
+    // Autocompletado sobre el índice en memoria (sin consultas a BD)
+    @GetMapping("/search")
+    @ResponseBody
+    public List<TypeaheadHitDTO> searchProvinces(@RequestParam(name = "q", defaultValue = "") String query,
+                                                 @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return typeaheadService.searchProvinces(query, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+    }
+
     // =========================
     // GET /provinces/edit
     // =========================
@@ -178,6 +300,23 @@ public class ProvinceController {
         }
     }
 
+    // =========================
+    // GET /provinces/export
+    // =========================
+    // Exportación en streaming: las filas se escriben según se leen de BD
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public void exportProvinces(@RequestParam(name = "format", defaultValue = "csv") String format,
+                          HttpServletResponse response) throws IOException {
+        ExportService.Format exportFormat = ExportService.Format.fromParam(format);
+        logger.info("Exportando provincias en formato {}", exportFormat);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"provinces." + exportFormat.getExtension() + "\"");
+        exportService.exportProvinces(exportFormat, response.getWriter());
+    }
+
     // =========================
     // POST /provinces/delete
     // =========================
@@ -202,6 +341,36 @@ public class ProvinceController {
         }
     }
 
+    // =========================
+    // POST /provinces/delete-bulk
+    // =========================
+    // Borrado de las provincias marcadas: todo o nada, por conjuntos
+    @PostMapping("/delete-bulk")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public String deleteProvinces(@RequestParam(name = "ids", required = false) List<Long> ids,
+                                  RedirectAttributes redirectAttributes, Locale locale) {
+        if (ids == null || ids.isEmpty()) {
+            String errorMessage = messageSource.getMessage("msg.bulk-delete.empty", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
+            return "redirect:/provinces";
+        }
+        logger.info("Borrado masivo de {} provincias", ids.size());
+        try {
+            int deleted = provinceService.deleteAll(ids);
+            String successMessage = messageSource.getMessage("msg.bulk-delete.success", new Object[]{deleted}, locale);
+            redirectAttributes.addFlashAttribute("successMessage", successMessage);
+        } catch (ResourceNotFoundException ex) {
+            logger.warn("Borrado masivo de provincias cancelado: {}", ex.getMessage());
+            String errorMessage = messageSource.getMessage("msg.bulk-delete.notFound", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
+        } catch (Exception e) {
+            logger.error("Error en el borrado masivo de provincias: {}", e.getMessage(), e);
+            String errorMessage = messageSource.getMessage("msg.bulk-delete.error", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
+        }
+        return "redirect:/provinces";
+    }
+
     // =========================
     // GET /provinces/detail
     // =========================
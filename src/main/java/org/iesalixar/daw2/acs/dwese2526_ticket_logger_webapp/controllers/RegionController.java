@@ -1,5 +1,6 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.controllers;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.DuplicateResourceException;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.ResourceNotFoundException;
@@ -7,22 +8,37 @@ import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.Region
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.*;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Region;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.mappers.RegionMapper;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.CsvImportService;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.ExportService;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.RegionOptionsService;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.RegionService;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.TypeaheadService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
@@ -37,12 +53,42 @@ public class RegionController {
 
     private static final Logger logger = LoggerFactory.getLogger(RegionController.class);
 
+    /** Tamaño máximo de página admitido en el modo de paginación por clave. */
+    private static final int MAX_KEYSET_PAGE_SIZE = 100;
+
+    /** Resultados máximos del autocompletado. */
+    private static final int MAX_SEARCH_RESULTS = 50;
+
     /**
      * DAO para acceder a los datos de las regiones en la base de datos.
      */
     @Autowired
     private RegionService regionService;
 
+    /**
+     * Servicio de importación masiva desde CSV.
+     */
+    @Autowired
+    private CsvImportService csvImportService;
+
+    /**
+     * Opciones de región precalculadas (bundle JSON versionado).
+     */
+    @Autowired
+    private RegionOptionsService regionOptionsService;
+
+    /**
+     * Índice en memoria para el autocompletado.
+     */
+    @Autowired
+    private TypeaheadService typeaheadService;
+
+    /**
+     * Servicio de exportación en streaming (CSV / NDJSON).
+     */
+    @Autowired
+    private ExportService exportService;
+
     /**
      * Fuente de mensajes internacionalizados.
      */
@@ -82,6 +128,68 @@ public class RegionController {
         return "views/region/region-list";
     }
 
+    /**
+     * Muestra la lista de regiones usando paginación por clave (keyset).
+     * <p>
+     * Se activa con el parámetro {@code cursor} (vacío para la primera página). Cada página
+     * se obtiene con {@code WHERE (name, id) > (?, ?)}, sin OFFSET ni {@code COUNT(*)},
+     * por lo que el coste no depende de lo lejos que se esté en el listado.
+     * </p>
+     *
+     * @param cursor cursor de la última fila mostrada (vacío para empezar).
+     * @param size   número de filas por página.
+     * @param model  Modelo de Spring para pasar datos a la vista.
+     * @return Nombre de la vista que renderiza la lista de regiones.
+     */
+    @GetMapping(params = "cursor")
+    public String listRegionsKeyset(@RequestParam("cursor") String cursor,
+                                    @RequestParam(value = "size", defaultValue = "10") int size,
+                                    Model model) {
+        logger.info("Solicitando regiones por cursor... size={}", size);
+        try {
+            KeysetPageDTO<RegionDTO> keysetPage =
+                    regionService.listKeyset(cursor, Math.max(1, Math.min(size, MAX_KEYSET_PAGE_SIZE)));
+            logger.info("Se han cargado {} regiones por cursor", keysetPage.getContent().size());
+            model.addAttribute("keysetPage", keysetPage);
+        } catch (Exception e) {
+            logger.error("Error al listar las regiones por cursor: {}", e.getMessage());
+            model.addAttribute("errorMessage", "Error al listar las regiones.");
+        }
+        model.addAttribute("sortParam", "name,asc");
+        return "views/region/region-list";
+    }
+
+    /**
+     * Muestra la lista de regiones en modo {@link Slice} (solo "hay siguiente"), pensado para
+     * navegación continua. No lanza {@code COUNT(*)}: el total que se muestra es aproximado.
+     *
+     * @param pageable página, tamaño y orden.
+     * @param model    Modelo de Spring para pasar datos a la vista.
+     * @return Nombre de la vista que renderiza la lista de regiones.
+     */
+    @GetMapping(params = {"mode=slice", "!cursor"})
+    public String listRegionsSlice(@PageableDefault(size = 10, sort = "name", direction = Sort.Direction.ASC) Pageable pageable,
+                                   Model model) {
+        logger.info("Solicitando regiones en modo slice... page={}, size={}", pageable.getPageNumber(), pageable.getPageSize());
+        try {
+            Slice<RegionDTO> slice = regionService.listSlice(pageable);
+            logger.info("Se han cargado {} regiones (hasNext={})", slice.getNumberOfElements(), slice.hasNext());
+            model.addAttribute("slice", slice);
+            model.addAttribute("approxTotal", regionService.approximateTotal());
+
+            String sortParam = "name,asc";
+            if (slice.getSort().isSorted()) {
+                Sort.Order order = slice.getSort().iterator().next();
+                sortParam = order.getProperty() + "," + order.getDirection().name().toLowerCase();
+            }
+            model.addAttribute("sortParam", sortParam);
+        } catch (Exception e) {
+            logger.error("Error al listar las regiones en modo slice: {}", e.getMessage());
+            model.addAttribute("errorMessage", "Error al listar las regiones.");
+        }
+        return "views/region/region-list";
+    }
+
 
     /**
      * Muestra el formulario para crear una nueva región.
@@ -90,20 +198,73 @@ public class RegionController {
      * @return Nombre de la vista con el formulario de nueva región.
      */
     @GetMapping("/new")
-    public String showNewForm(Model model, Locale locale, Pageable pageable) {
+    public String showNewForm(Model model) {
         logger.info("Mostrando formulario para nueva region.");
-        try {
-            List<RegionDTO> listRegions = regionService.listAll(); //*****
-            model.addAttribute("region", new RegionCreateDTO());
-            model.addAttribute("listRegions", listRegions);
-        } catch (Exception e) {
-            logger.error("Error al cargar las regiones para el formulario de regiones: {}", e.getMessage());
-            String errorMessage = messageSource.getMessage("msg.user-controller.edit.error", null, locale);
-            model.addAttribute("errorMessage", errorMessage);
-        }
+        // El formulario de región no tiene desplegables: no hace falta consultar la BD
+        model.addAttribute("region", new RegionCreateDTO());
         return "views/region/region-form";
     }
 
+    /**
+     * Autocompletado de regiones por nombre o código (sin tildes ni mayúsculas).
+     *
+     * @param query texto escrito por el usuario.
+     * @param limit número máximo de resultados (como mucho {@value #MAX_SEARCH_RESULTS}).
+     * @return regiones encontradas en JSON.
+     */
+    @GetMapping("/search")
+    @ResponseBody
+    public List<TypeaheadHitDTO> searchRegions(@RequestParam(name = "q", defaultValue = "") String query,
+                                               @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return typeaheadService.searchRegions(query, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+    }
+
+    /**
+     * Punto de entrada estable del bundle JSON de opciones de región: redirige a la URL
+     * versionada vigente, que es la que el navegador puede cachear indefinidamente.
+     *
+     * @return redirección a {@code /regions/options/{version}.json}.
+     */
+    @GetMapping("/options.json")
+    public String regionOptionsBundle() {
+        return "redirect:/regions/options/" + regionOptionsService.getBundle().getVersion() + ".json";
+    }
+
+    /**
+     * Sirve el bundle JSON (id, code, name) de las regiones ya ordenadas por nombre.
+     * <p>
+     * El contenido de una versión nunca cambia, así que se marca como {@code immutable} con
+     * un año de vida. Se entrega ya comprimido con gzip si el cliente lo acepta. Si la versión
+     * pedida ya no es la vigente se redirige a la actual.
+     * </p>
+     *
+     * @param version        versión pedida (sello de regiones).
+     * @param acceptEncoding cabecera {@code Accept-Encoding} del cliente.
+     * @return JSON de las opciones o redirección a la versión vigente.
+     */
+    @GetMapping("/options/{version}.json")
+    @ResponseBody
+    public ResponseEntity<byte[]> regionOptionsBundle(@PathVariable("version") long version,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        RegionOptionsBundleDTO bundle = regionOptionsService.getBundle();
+        if (bundle.getVersion() != version) {
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                            .path("/regions/options/{version}.json").buildAndExpand(bundle.getVersion()).toUri())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(bundle.getGzippedJson());
+        }
+        return response.body(bundle.getJson());
+    }
+
     /**
      * Inserta una nueva región en la base de datos.
      *
@@ -181,6 +342,98 @@ public class RegionController {
         }
     }
 
+    /**
+     * Elimina varias regiones seleccionadas en el listado (y todas sus provincias).
+     * Se validan todos los ids con una consulta y se borra por conjuntos en una transacción:
+     * si alguno no existe no se borra ninguno.
+     *
+     * @param ids                ids de las regiones marcadas.
+     * @param redirectAttributes Atributos para mensajes flash de redirección.
+     * @param locale             Localización para mensajes internacionalizados.
+     * @return Redirección a la lista de regiones.
+     */
+    @PostMapping("/delete-bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public String deleteRegions(@RequestParam(name = "ids", required = false) List<Long> ids,
+                                RedirectAttributes redirectAttributes, Locale locale) {
+        if (ids == null || ids.isEmpty()) {
+            String errorMessage = messageSource.getMessage("msg.bulk-delete.empty", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
+            return "redirect:/regions";
+        }
+        logger.info("Borrado masivo de {} regiones", ids.size());
+        try {
+            int deleted = regionService.deleteAll(ids);
+            String successMessage = messageSource.getMessage("msg.bulk-delete.success", new Object[]{deleted}, locale);
+            redirectAttributes.addFlashAttribute("successMessage", successMessage);
+        } catch (ResourceNotFoundException ex) {
+            logger.warn("Borrado masivo de regiones cancelado: {}", ex.getMessage());
+            String errorMessage = messageSource.getMessage("msg.bulk-delete.notFound", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
+        } catch (Exception e) {
+            logger.error("Error en el borrado masivo de regiones: {}", e.getMessage(), e);
+            String errorMessage = messageSource.getMessage("msg.bulk-delete.error", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
+        }
+        return "redirect:/regions";
+    }
+
+    /**
+     * Importa regiones de forma masiva desde un fichero CSV ({@code code,name}).
+     *
+     * @param file               fichero CSV subido.
+     * @param redirectAttributes Atributos para mensajes flash de redirección.
+     * @param locale             Localización para mensajes internacionalizados.
+     * @return Redirección a la lista de regiones con el resumen de la importación.
+     */
+    @PostMapping("/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public String importRegions(@RequestParam("file") MultipartFile file,
+                                RedirectAttributes redirectAttributes, Locale locale) {
+        logger.info("Importando regiones desde CSV {}", file.getOriginalFilename());
+        if (file.isEmpty()) {
+            String errorMessage = messageSource.getMessage("msg.import.empty", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
+            return "redirect:/regions";
+        }
+        try {
+            ImportResultDTO result = csvImportService.importRegions(file);
+            String successMessage = messageSource.getMessage("msg.import.result",
+                    new Object[]{result.getInserted(), result.getProcessed(), result.getRejected()}, locale);
+            redirectAttributes.addFlashAttribute("successMessage", successMessage);
+            redirectAttributes.addFlashAttribute("importErrors", result.getErrors());
+        } catch (Exception e) {
+            logger.error("Error al importar regiones desde CSV: {}", e.getMessage(), e);
+            String errorMessage = messageSource.getMessage("msg.import.error", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
+        }
+        return "redirect:/regions";
+    }
+
+    /**
+     * Exporta todas las regiones en CSV o NDJSON.
+     * <p>
+     * Las filas se escriben en la respuesta según se leen de la base de datos, de modo que
+     * la memoria usada no depende del número de registros.
+     * </p>
+     *
+     * @param format   formato de salida ({@code csv} o {@code ndjson}).
+     * @param response respuesta HTTP en la que se escribe el fichero.
+     * @throws IOException si falla la escritura en la respuesta.
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public void exportRegions(@RequestParam(name = "format", defaultValue = "csv") String format,
+                              HttpServletResponse response) throws IOException {
+        ExportService.Format exportFormat = ExportService.Format.fromParam(format);
+        logger.info("Exportando regiones en formato {}", exportFormat);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"regions." + exportFormat.getExtension() + "\"");
+        exportService.exportRegions(exportFormat, response.getWriter());
+    }
+
     /**
      * Elimina una región por su ID.
      *
@@ -243,12 +496,14 @@ public class RegionController {
 
     @GetMapping("/detail")
     public String showDetail(@RequestParam("id") Long id,
+                             @RequestParam(name = "cursor", defaultValue = "") String cursor,
+                             @RequestParam(name = "size", defaultValue = "20") int size,
                              Model model,
                              RedirectAttributes redirectAttributes,
                              Locale locale) {
         logger.info("Mostrando detalle de la region con ID {}", id);
         try {
-         RegionDetailDTO regionDTO = regionService.getDetail(id);
+         RegionDetailDTO regionDTO = regionService.getDetail(id, cursor, Math.max(1, Math.min(size, MAX_KEYSET_PAGE_SIZE)));
          model.addAttribute("region", regionDTO);
          return "views/region/region-detail";
         }
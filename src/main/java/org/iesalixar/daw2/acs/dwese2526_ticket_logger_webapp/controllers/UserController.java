@@ -1,14 +1,17 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.controllers;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Role;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.DuplicateResourceException;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.PasswordHashingRejectedException;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.ResourceNotFoundException;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.RoleRepository;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.UserRepository;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.*;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.User;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.mappers.UserMapper;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.ExportService;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,13 +19,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -35,10 +43,15 @@ public class UserController {
 
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
+    private static final int MAX_KEYSET_PAGE_SIZE = 100;
+
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ExportService exportService;
+
     @Autowired
     private RoleRepository roleRepository;
 
@@ -52,7 +65,7 @@ public class UserController {
         logger.info("Solicitando la lista de usuarios... page={}, size={}, sort={}",
                 pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort());
         try {
-            Page<UserDTO> listUsersDTOs = userService.list(pageable);
+            Page<UserListItemDTO> listUsersDTOs = userService.list(pageable);
             logger.info("Se han cargado {} usuarios en la página {}",
                     listUsersDTOs.getNumberOfElements(), listUsersDTOs.getNumber());
             model.addAttribute("page", listUsersDTOs);
@@ -72,11 +85,62 @@ public class UserController {
         return "views/user/user-list";
     }
 
+    /**
+     * Lista de usuarios con paginación por clave (email, id), activada con {@code ?cursor=}.
+     * No usa OFFSET ni {@code COUNT(*)}: la página 10.000 cuesta lo mismo que la primera.
+     */
+    @GetMapping(params = "cursor")
+    public String listUsersKeyset(@RequestParam("cursor") String cursor,
+                                  @RequestParam(value = "size", defaultValue = "10") int size,
+                                  Model model,
+                                  Locale locale) {
+        logger.info("Solicitando usuarios por cursor... size={}", size);
+        try {
+            KeysetPageDTO<UserListItemDTO> keysetPage =
+                    userService.listKeyset(cursor, Math.max(1, Math.min(size, MAX_KEYSET_PAGE_SIZE)));
+            logger.info("Se han cargado {} usuarios por cursor", keysetPage.getContent().size());
+            model.addAttribute("keysetPage", keysetPage);
+        } catch (Exception e) {
+            logger.error("Error al listar los usuarios por cursor: {}", e.getMessage(), e);
+            String errorMessage = messageSource.getMessage("msg.user-controller.list.error", null, locale);
+            model.addAttribute("errorMessage", errorMessage);
+        }
+        return "views/user/user-list";
+    }
+
+    /**
+     * Lista de usuarios en modo {@link Slice} ({@code ?mode=slice}): solo sabe si hay página
+     * siguiente, sin {@code COUNT(*)}; el total mostrado es aproximado.
+     */
+    @GetMapping(params = {"mode=slice", "!cursor"})
+    public String listUsersSlice(@PageableDefault(size = 10, sort = "id") Pageable pageable,
+                                 Model model,
+                                 Locale locale) {
+        logger.info("Solicitando usuarios en modo slice... page={}, size={}", pageable.getPageNumber(), pageable.getPageSize());
+        try {
+            Slice<UserListItemDTO> slice = userService.listSlice(pageable);
+            logger.info("Se han cargado {} usuarios (hasNext={})", slice.getNumberOfElements(), slice.hasNext());
+            model.addAttribute("slice", slice);
+            model.addAttribute("approxTotal", userService.approximateTotal());
+
+            String sortParam = "id,asc";
+            if (slice.getSort().isSorted()) {
+                var order = slice.getSort().iterator().next();
+                sortParam = order.getProperty() + "," + order.getDirection().name().toLowerCase();
+            }
+            model.addAttribute("sortParam", sortParam);
+        } catch (Exception e) {
+            logger.error("Error al listar los usuarios en modo slice: {}", e.getMessage(), e);
+            String errorMessage = messageSource.getMessage("msg.user-controller.list.error", null, locale);
+            model.addAttribute("errorMessage", errorMessage);
+        }
+        return "views/user/user-list";
+    }
+
     @GetMapping("/new")
     public String showNewForm(Model model, Locale locale) {
         logger.info("Mostrando formulario para nuevo usuario.");
         try {
-            List<UserDTO> listUsers = userService.listAll();
             model.addAttribute("user", new UserCreateDTO());
             model.addAttribute("allRoles", roleRepository.findAll());
         } catch (Exception e) {
@@ -110,6 +174,13 @@ public class UserController {
             redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
             return "redirect:/users/new";
 
+        } catch (PasswordHashingRejectedException ex) {
+            // Hashing saturado: no es un fallo de autenticación del administrador, se reintenta
+            logger.warn("Hashing de contraseñas saturado al insertar el usuario {}", userDTO.getEmail());
+            String errorMessage = messageSource.getMessage("msg.user-controller.password-busy", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
+            return "redirect:/users/new";
+
         } catch (Exception e) {
             logger.error("Error al insertar el usuario {}: {}", userDTO.getEmail(), e.getMessage(), e);
             String errorMessage = messageSource.getMessage("msg.user-controller.insert.error", null, locale);
@@ -184,6 +255,12 @@ public class UserController {
             logger.info("Usuario con ID {} actualizado con éxito. Expira el {}", userDTO.getId(), userDTO.getPasswordExpiresAt());
             return "redirect:/users";
 
+        } catch (PasswordHashingRejectedException ex) {
+            logger.warn("Hashing de contraseñas saturado al actualizar el usuario con ID {}", userDTO.getId());
+            String errorMessage = messageSource.getMessage("msg.user-controller.password-busy", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
+            return "redirect:/users/edit?id=" + userDTO.getId();
+
         } catch (Exception e) {
             logger.error("Error al actualizar usuario con ID {}: {}", userDTO.getId(), e.getMessage(), e);
             String errorMessage = messageSource.getMessage("msg.user-controller.update.error", null, locale);
@@ -192,6 +269,20 @@ public class UserController {
         }
     }
 
+    // Exportación en streaming: las filas se escriben según se leen de BD
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportUsers(@RequestParam(name = "format", defaultValue = "csv") String format,
+                          HttpServletResponse response) throws IOException {
+        ExportService.Format exportFormat = ExportService.Format.fromParam(format);
+        logger.info("Exportando usuarios en formato {}", exportFormat);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"users." + exportFormat.getExtension() + "\"");
+        exportService.exportUsers(exportFormat, response.getWriter());
+    }
+
     @PostMapping("/delete")
     public String deleteUser(@RequestParam("id") Long id,
                              RedirectAttributes redirectAttributes,
@@ -216,6 +307,33 @@ public class UserController {
         }
     }
 
+    // Borrado de los usuarios marcados: todo o nada, por conjuntos
+    @PostMapping("/delete-bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public String deleteUsers(@RequestParam(name = "ids", required = false) List<Long> ids,
+                              RedirectAttributes redirectAttributes, Locale locale) {
+        if (ids == null || ids.isEmpty()) {
+            String errorMessage = messageSource.getMessage("msg.bulk-delete.empty", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
+            return "redirect:/users";
+        }
+        logger.info("Borrado masivo de {} usuarios", ids.size());
+        try {
+            int deleted = userService.deleteAll(ids);
+            String successMessage = messageSource.getMessage("msg.bulk-delete.success", new Object[]{deleted}, locale);
+            redirectAttributes.addFlashAttribute("successMessage", successMessage);
+        } catch (ResourceNotFoundException ex) {
+            logger.warn("Borrado masivo de usuarios cancelado: {}", ex.getMessage());
+            String errorMessage = messageSource.getMessage("msg.bulk-delete.notFound", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
+        } catch (Exception e) {
+            logger.error("Error en el borrado masivo de usuarios: {}", e.getMessage(), e);
+            String errorMessage = messageSource.getMessage("msg.bulk-delete.error", null, locale);
+            redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
+        }
+        return "redirect:/users";
+    }
+
     @GetMapping("/detail")
     public String showDetail(@RequestParam("id") Long id,
                              Model model,
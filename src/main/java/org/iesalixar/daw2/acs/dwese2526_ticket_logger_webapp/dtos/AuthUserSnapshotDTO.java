@@ -0,0 +1,24 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
+
+import lombok.Value;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+
+/**
+ * Datos de autenticación de un usuario tal y como se guardan en la cache de login.
+ * <p>
+ * Es inmutable y se comparte entre peticiones; a partir de él se construye un
+ * {@code UserDetails} nuevo en cada login, porque Spring Security borra la contraseña
+ * del {@code UserDetails} autenticado ({@code eraseCredentials}).
+ * </p>
+ */
+@Value
+public class AuthUserSnapshotDTO {
+    Long userId;
+    String email;
+    String passwordHash;
+    List<GrantedAuthority> authorities;
+    boolean enabled;
+    boolean accountNonLocked;
+}
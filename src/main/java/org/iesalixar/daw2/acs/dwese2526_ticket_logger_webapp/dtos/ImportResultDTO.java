@@ -0,0 +1,49 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una importación masiva desde CSV.
+ * <p>
+ * Guarda los contadores de filas y, como mucho, {@link #MAX_REPORTED_ERRORS} mensajes de error
+ * por línea, para que un fichero enorme y erróneo no dispare el consumo de memoria.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResultDTO {
+
+    /** Número máximo de errores que se detallan en el informe. */
+    public static final int MAX_REPORTED_ERRORS = 200;
+
+    /** Filas de datos leídas (sin contar cabecera ni líneas vacías). */
+    private int processed;
+
+    /** Filas insertadas en base de datos. */
+    private int inserted;
+
+    /** Filas rechazadas (formato, validación, duplicados...). */
+    private int rejected;
+
+    /** Detalle de los errores: "Línea N: motivo". */
+    private List<String> errors = new ArrayList<>();
+
+    /**
+     * Registra una fila rechazada.
+     *
+     * @param line    número de línea del fichero (empezando en 1).
+     * @param message motivo del rechazo.
+     */
+    public void addError(int line, String message) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add("Línea " + line + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor de paginación por clave (keyset / seek).
+ * <p>
+ * Guarda el valor de la clave de orden ({@code name}, {@code email}...) y el {@code id}
+ * de la última fila mostrada. Viaja en la URL codificado en Base64 URL-safe, de forma que
+ * la siguiente página se obtiene con {@code WHERE (clave, id) > (?, ?)} sin usar OFFSET.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeysetCursor {
+
+    /** Separador entre clave e id (no puede aparecer en nombres ni emails). */
+    private static final char SEPARATOR = '\u0000';
+
+    private String key;
+    private Long id;
+
+    /**
+     * Codifica el cursor para usarlo como parámetro de la URL.
+     *
+     * @return cursor en Base64 URL-safe sin padding.
+     */
+    public String encode() {
+        String raw = key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor recibido en la URL.
+     *
+     * @param cursor cursor codificado; vacío o {@code null} indica la primera página.
+     * @return cursor decodificado, o {@code null} si se pide la primera página.
+     * @throws IllegalArgumentException si el cursor está mal formado.
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int sep = raw.lastIndexOf(SEPARATOR);
+        if (sep < 0) {
+            throw new IllegalArgumentException("Cursor de paginación no válido");
+        }
+        return new KeysetCursor(raw.substring(0, sep), Long.valueOf(raw.substring(sep + 1)));
+    }
+}
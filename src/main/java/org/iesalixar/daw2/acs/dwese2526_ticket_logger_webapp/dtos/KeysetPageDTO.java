@@ -0,0 +1,46 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página obtenida mediante paginación por clave (keyset).
+ * <p>
+ * A diferencia de {@link org.springframework.data.domain.Page} no conoce el total de registros
+ * (no se lanza {@code COUNT(*)}); solo sabe si hay página siguiente y el cursor para pedirla.
+ * </p>
+ *
+ * @param <T> tipo de los elementos de la página.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeysetPageDTO<T> {
+
+    private List<T> content;
+    private int size;
+    private boolean first;
+    private boolean hasNext;
+    private String nextCursor;
+
+    /**
+     * Construye la página a partir de las filas leídas con un límite de {@code size + 1}.
+     * La fila extra solo sirve para saber si existe página siguiente y se descarta.
+     *
+     * @param rows     filas leídas (como máximo {@code size + 1}).
+     * @param size     tamaño de página solicitado.
+     * @param first    {@code true} si es la primera página (sin cursor).
+     * @param cursorOf función que obtiene el cursor de una fila.
+     * @return página con el cursor de la última fila mostrada.
+     */
+    public static <T> KeysetPageDTO<T> of(List<T> rows, int size, boolean first, Function<T, KeysetCursor> cursorOf) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(content.get(content.size() - 1)).encode() : null;
+        return new KeysetPageDTO<>(List.copyOf(content), size, first, hasNext, nextCursor);
+    }
+}
@@ -3,10 +3,6 @@ package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.validator.constraints.Normalized;
-
-import java.util.List;
-
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -14,5 +10,8 @@ public class RegionDetailDTO {
     private Long id;
     private String code;
     private String name;
-    private List<ProvinceDTO> provinces;
+    /** Total de provincias de la región (consulta COUNT). */
+    private long provinceCount;
+    /** Página de provincias ordenadas por (name, id), navegable por cursor. */
+    private KeysetPageDTO<ProvinceDTO> provinces;
 }
@@ -0,0 +1,13 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
+
+import lombok.Value;
+
+/**
+ * Opción de región para los desplegables (inmutable: se comparte entre peticiones).
+ */
+@Value
+public class RegionOptionDTO {
+    Long id;
+    String code;
+    String name;
+}
@@ -0,0 +1,19 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Instantánea inmutable de las opciones de región: la lista ordenada por nombre y su
+ * serialización JSON (plana y comprimida con gzip) asociadas a un número de versión.
+ */
+@Getter
+@AllArgsConstructor
+public class RegionOptionsBundleDTO {
+    private final long version;
+    private final List<RegionOptionDTO> options;
+    private final byte[] json;
+    private final byte[] gzippedJson;
+}
@@ -0,0 +1,12 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
+
+import lombok.Value;
+
+/**
+ * Correo ya renderizado: asunto resuelto por i18n y cuerpo HTML listo para encolar.
+ */
+@Value
+public class RenderedMailDTO {
+    String subject;
+    String body;
+}
@@ -0,0 +1,16 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
+
+import lombok.Value;
+
+/**
+ * Resultado de guardar un fichero subido: ruta web, tamaño y hash calculados al copiarlo.
+ */
+@Value
+public class StoredFileDTO {
+    /** Ruta web con la que se sirve el fichero ({@code /uploads/<nombre>}). */
+    String webPath;
+    /** Bytes escritos. */
+    long size;
+    /** SHA-256 del contenido en hexadecimal. */
+    String sha256;
+}
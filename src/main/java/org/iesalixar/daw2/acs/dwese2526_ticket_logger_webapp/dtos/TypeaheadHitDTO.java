@@ -0,0 +1,20 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado del autocompletado de regiones y provincias.
+ * En las regiones {@code regionId} y {@code regionName} van a {@code null}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypeaheadHitDTO {
+    private Long id;
+    private String code;
+    private String name;
+    private Long regionId;
+    private String regionName;
+}
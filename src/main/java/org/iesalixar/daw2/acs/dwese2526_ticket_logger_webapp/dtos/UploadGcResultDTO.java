@@ -0,0 +1,18 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
+
+import lombok.Value;
+
+/**
+ * Resultado de una pasada del recolector de ficheros subidos huérfanos.
+ */
+@Value
+public class UploadGcResultDTO {
+    /** Ficheros examinados. */
+    long scanned;
+    /** Ficheros borrados o movidos a cuarentena. */
+    long reclaimed;
+    /** Bytes liberados en {@code uploads}. */
+    long reclaimedBytes;
+    /** Duración de la pasada en milisegundos. */
+    long durationMillis;
+}
@@ -0,0 +1,25 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila de la exportación de usuarios, construida en la consulta (proyección por constructor):
+ * no viajan el hash de la contraseña, los roles ni el perfil.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserExportDTO {
+    private Long id;
+    private String email;
+    private boolean active;
+    private boolean accountNonLocked;
+    private boolean emailVerified;
+    private boolean mustChangePassword;
+    private LocalDateTime lastPasswordChange;
+    private LocalDateTime passwordExpiresAt;
+}
@@ -0,0 +1,38 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Fila del listado de usuarios: solo las columnas que muestra la tabla.
+ * <p>
+ * Se construye directamente en la consulta (proyección por constructor), así que nunca
+ * viajan desde la base de datos el hash de la contraseña, los datos de bloqueo ni el perfil.
+ * Los roles se rellenan después con una única consulta para toda la página.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+public class UserListItemDTO {
+
+    private Long id;
+
+    private String email;
+
+    private boolean active;
+
+    private boolean accountNonLocked;
+
+    // Roles asociados al usuario (nombres técnicos: ROLE_ADMIN, ROLE_USER, etc.)
+    private Set<String> roles = new HashSet<>();
+
+    public UserListItemDTO(Long id, String email, boolean active, boolean accountNonLocked) {
+        this.id = id;
+        this.email = email;
+        this.active = active;
+        this.accountNonLocked = accountNonLocked;
+    }
+}
@@ -0,0 +1,16 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Email y estado de bloqueo de un usuario antes de editarlo (proyección por constructor).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserLockStateDTO {
+    private String email;
+    private boolean accountNonLocked;
+}
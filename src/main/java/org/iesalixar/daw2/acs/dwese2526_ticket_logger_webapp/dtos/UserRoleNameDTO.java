@@ -0,0 +1,12 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos;
+
+import lombok.Value;
+
+/**
+ * Par (usuario, nombre de rol) leído en bloque para una página del listado de usuarios.
+ */
+@Value
+public class UserRoleNameDTO {
+    Long userId;
+    String roleName;
+}
@@ -0,0 +1,102 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Correo pendiente de entrega (patrón outbox).
+ * <p>
+ * Se guarda en la misma transacción que la operación que lo genera y lo entrega después
+ * el dispatcher en segundo plano, con reintentos y, si se agotan, queda como {@code DEAD}.
+ * </p>
+ */
+@Entity
+@Table(name = "mail_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailOutboxMessage {
+
+    /** Estados del mensaje en la bandeja de salida. */
+    public enum Status {
+        /** Pendiente de envío (o de reintento a partir de {@code nextAttemptAt}). */
+        PENDING,
+        /** Reservado por un dispatcher que lo está enviando. */
+        SENDING,
+        /** Entregado al servidor SMTP. */
+        SENT,
+        /** Descartado tras agotar los reintentos (dead letter). */
+        DEAD
+    }
+
+
+    /** Identificador del mensaje (PK autoincremental). */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+
+    /** Dirección del destinatario. */
+    @Column(name = "recipient", nullable = false, length = 255)
+    private String recipient;
+
+
+    /** Asunto ya resuelto (i18n aplicada al encolar). */
+    @Column(name = "subject", nullable = false, length = 255)
+    private String subject;
+
+
+    /** Cuerpo ya renderizado (texto plano o HTML). */
+    @Column(name = "body", nullable = false)
+    private String body;
+
+
+    /** {@code true} si el cuerpo es HTML. */
+    @Column(name = "html", nullable = false)
+    private boolean html;
+
+
+    /** Estado actual del mensaje. */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private Status status;
+
+
+    /** Intentos de envío fallidos hasta ahora. */
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+
+    /** Momento a partir del cual puede (re)intentarse el envío. */
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+
+    /** Reserva del dispatcher que lo está enviando (nulo si nadie lo tiene). */
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+
+    /** Fin de la reserva: pasado este momento otro dispatcher puede recuperarlo. */
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+
+    /** Último error de envío (truncado). */
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+
+    /** Fecha de creación (momento de encolado). */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+
+    /** Fecha de entrega al servidor SMTP. */
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+}
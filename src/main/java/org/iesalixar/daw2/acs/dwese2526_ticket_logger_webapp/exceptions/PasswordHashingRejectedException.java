@@ -0,0 +1,16 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * El ejecutor de hashing de contraseñas está saturado (cola llena o espera agotada).
+ * <p>
+ * Extiende {@link AuthenticationServiceException} para que, durante el login, Spring Security
+ * lo trate como un fallo de autenticación (vuelta a {@code /login?error}) y no como un 500.
+ * </p>
+ */
+public class PasswordHashingRejectedException extends AuthenticationServiceException {
+    public PasswordHashingRejectedException(String detail) {
+        super("Password hashing rejected: " + detail);
+    }
+}
@@ -4,13 +4,13 @@ package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.handlers;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.UserRepository;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.CustomUserDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
@@ -28,10 +28,6 @@ import java.io.IOException;
 public class CustomOAuth2SuccessHandler implements AuthenticationSuccessHandler {
 
 
-    @Autowired
-    private UserRepository userRepository;
-
-
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
 
@@ -58,17 +54,17 @@ public class CustomOAuth2SuccessHandler implements AuthenticationSuccessHandler
         String username = oAuth2User.getAttribute("login");
 
 
-        // Verificar si el usuario está registrado en la base de datos
-        if (!userRepository.existsByEmail(username)) {
+        // Cargar los detalles del usuario (cache de login; si no está, una sola consulta).
+        // Si no existe se comprueba aquí mismo, sin un existsByEmail previo.
+        UserDetails userDetails;
+        try {
+            userDetails = customUserDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException e) {
             // Lanzar una excepción estándar de Spring Security. Esto hará que se gestione por el handler CustomOAuth2FailureHandler
             throw new OAuth2AuthenticationException("El usuario " + username + " no está registrado en el sistema.");
         }
 
 
-        // Cargar los detalles del usuario desde la base de datos
-        UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
-
-
         // Crear un nuevo objeto Authentication con los detalles del usuario cargados
         // userDetails.getAuthorities() contiene los detalles de los roles y permisos que se han establecido en el customUserDetailsService.loadUserByUsername
         UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
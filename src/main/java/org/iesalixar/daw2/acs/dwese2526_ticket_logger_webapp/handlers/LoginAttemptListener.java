@@ -0,0 +1,54 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.handlers;
+
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.LoginThrottleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.stereotype.Component;
+
+/**
+ * Escucha los eventos de autenticación de Spring Security y alimenta los contadores de
+ * {@link LoginThrottleService}. Solo cuenta el login por formulario (usuario y contraseña).
+ */
+@Component
+public class LoginAttemptListener {
+
+    @Autowired
+    private LoginThrottleService loginThrottleService;
+
+    /**
+     * Contraseña incorrecta o email inexistente: suma un fallo a la cuenta y a la IP.
+     *
+     * @param event evento publicado por el {@code ProviderManager}.
+     */
+    @EventListener
+    public void onFailure(AuthenticationFailureBadCredentialsEvent event) {
+        Authentication authentication = event.getAuthentication();
+        if (authentication instanceof UsernamePasswordAuthenticationToken) {
+            loginThrottleService.loginFailed(authentication.getName(), remoteAddress(authentication));
+        }
+    }
+
+    /**
+     * Login correcto: la cuenta vuelve a cero fallos.
+     *
+     * @param event evento publicado por el {@code ProviderManager}.
+     */
+    @EventListener
+    public void onSuccess(AuthenticationSuccessEvent event) {
+        Authentication authentication = event.getAuthentication();
+        if (authentication instanceof UsernamePasswordAuthenticationToken) {
+            loginThrottleService.loginSucceeded(authentication.getName());
+        }
+    }
+
+    private String remoteAddress(Authentication authentication) {
+        return authentication.getDetails() instanceof WebAuthenticationDetails details
+                ? details.getRemoteAddress()
+                : null;
+    }
+}
@@ -0,0 +1,50 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.handlers;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.LoginThrottleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Filtro que corta el {@code POST /login} cuando la cuenta o la IP superan su límite de fallos.
+ * <p>
+ * Se ejecuta antes de {@code UsernamePasswordAuthenticationFilter}, así que un intento
+ * bloqueado no llega a consultar la base de datos ni a calcular BCrypt. No es un
+ * {@code @Component}: lo registra {@code SecurityConfig} solo en la cadena de seguridad.
+ * </p>
+ */
+public class LoginThrottleFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginThrottleFilter.class);
+
+    private final LoginThrottleService loginThrottleService;
+
+    public LoginThrottleFilter(LoginThrottleService loginThrottleService) {
+        this.loginThrottleService = loginThrottleService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !("POST".equals(request.getMethod())
+                && "/login".equals(request.getServletPath()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String email = request.getParameter("username");
+        String ip = request.getRemoteAddr();
+        if (loginThrottleService.isThrottled(email, ip)) {
+            logger.warn("Login rechazado por exceso de intentos fallidos (email={}, ip={})", email, ip);
+            response.sendRedirect(request.getContextPath() + "/login?locked");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,127 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.handlers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.ReferenceDataVersionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.servlet.FlashMap;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.support.RequestContextUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+
+/**
+ * Interceptor de GET condicional para las páginas de datos de referencia
+ * ({@code /regions}, {@code /regions/detail} y {@code /provinces/detail}).
+ * <p>
+ * El ETag se calcula a partir de los sellos de {@link ReferenceDataVersionService} y de todo
+ * lo que cambia el HTML renderizado (URL con parámetros, idioma y sesión, que incluye el
+ * usuario y su token CSRF). Si coincide con {@code If-None-Match} se responde 304 en
+ * {@code preHandle}, antes de llegar al controlador: sin consultas ni plantilla.
+ * </p>
+ * <p>
+ * El ETag solo se envía en {@code postHandle} si la página se ha generado bien: los
+ * controladores capturan los errores de base de datos y muestran la vista con
+ * {@code errorMessage}, y esa página no debe quedar cacheada con el ETag de la versión.
+ * </p>
+ */
+@Component
+public class ReferenceDataEtagInterceptor implements HandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataEtagInterceptor.class);
+
+    /** Atributo de la petición con el ETag calculado en {@code preHandle}. */
+    private static final String ETAG_ATTRIBUTE = ReferenceDataEtagInterceptor.class.getName() + ".etag";
+
+    /** Cabecera de caché: el navegador debe revalidar siempre (y Spring Security no añade "no-store"). */
+    private static final String CACHE_CONTROL = "private, no-cache";
+
+    @Autowired
+    private ReferenceDataVersionService referenceDataVersionService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return true;
+        }
+        // Tras un redirect con mensajes flash la página no es la cacheada: se renderiza siempre
+        FlashMap inputFlashMap = RequestContextUtils.getInputFlashMap(request);
+        if (inputFlashMap != null && !inputFlashMap.isEmpty()) {
+            return true;
+        }
+
+        String etag = buildEtag(request);
+        if (matches(request, etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+            logger.debug("304 Not Modified para {} (ETag {})", request.getRequestURI(), etag);
+            return false;
+        }
+        request.setAttribute(ETAG_ATTRIBUTE, etag);
+        return true;
+    }
+
+    /**
+     * Publica el ETag solo si el controlador ha devuelto la vista sin error (ni redirect).
+     * Se ejecuta antes de renderizar la plantilla, con la respuesta aún sin enviar.
+     */
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        Object etag = request.getAttribute(ETAG_ATTRIBUTE);
+        if (etag == null || modelAndView == null || response.getStatus() != HttpServletResponse.SC_OK) {
+            return;
+        }
+        String viewName = modelAndView.getViewName();
+        if ((viewName != null && viewName.startsWith("redirect:")) || modelAndView.getModel().containsKey("errorMessage")) {
+            return;
+        }
+        response.setHeader(HttpHeaders.ETAG, etag.toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+    }
+
+    /** Compara con {@code If-None-Match} (lista separada por comas, {@code *} o ETags débiles). */
+    private boolean matches(HttpServletRequest request, String etag) {
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.IF_NONE_MATCH);
+        while (headers != null && headers.hasMoreElements()) {
+            for (String candidate : headers.nextElement().split(",")) {
+                String value = candidate.trim();
+                if (value.startsWith("W/")) {
+                    value = value.substring(2);
+                }
+                if ("*".equals(value) || etag.equals(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * El listado de regiones solo depende de las regiones; los detalles muestran datos de
+     * ambos conjuntos (provincias de una región, región de una provincia).
+     */
+    private String buildEtag(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        StringBuilder key = new StringBuilder()
+                .append('r').append(referenceDataVersionService.getRegionsVersion());
+        if (!"/regions".equals(path)) {
+            key.append('p').append(referenceDataVersionService.getProvincesVersion());
+        }
+        HttpSession session = request.getSession(false);
+        key.append('|').append(path)
+                .append('?').append(request.getQueryString() != null ? request.getQueryString() : "")
+                .append('|').append(RequestContextUtils.getLocale(request))
+                .append('|').append(session != null ? session.getId() : "");
+        return "\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -1,7 +1,6 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.mappers;
 
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.*;
-import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Province;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Region;
 
 import java.util.List;
@@ -21,27 +20,17 @@ public class RegionMapper {
         return entities.stream().map(RegionMapper::toDTO).toList();
     }
     //Entity -> DTO (detalle con provincias)
-    public static RegionDetailDTO toDetailDTO(Region entity) {
+    public static RegionDetailDTO toDetailDTO(Region entity, long provinceCount, KeysetPageDTO<ProvinceDTO> provinces) {
         if (entity == null) return null;
 
         RegionDetailDTO dto = new RegionDetailDTO();
         dto.setId(entity.getId());
         dto.setCode(entity.getCode());
         dto.setName(entity.getName());
-        dto.setProvinces(toProvinceList(entity.getProvinces()));
+        dto.setProvinceCount(provinceCount);
+        dto.setProvinces(provinces);
         return dto;
     }
-    public static ProvinceDTO toProvinceDTO(Province p){
-        if (p == null) return null;
-        ProvinceDTO dto = new ProvinceDTO();
-        dto.setId(p.getId());
-        dto.setName(p.getName());
-        return dto;
-    }
-    public static List<ProvinceDTO> toProvinceList(List<Province> provinces) {
-        if (provinces == null) return List.of();
-        return provinces.stream().map(RegionMapper::toProvinceDTO).toList();
-    }
     public static RegionUpdateDTO toUpdateDTO(Region entity) {
         if (entity == null) return null;
         RegionUpdateDTO dto = new RegionUpdateDTO();
@@ -7,6 +7,7 @@ import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.UserProfil
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 /**
@@ -28,6 +29,28 @@ public class UserMapper {
         if (entity == null) return null;
 
 
+        // ────────────────────────────────
+        // Cargar roles si existen
+        // ────────────────────────────────
+        Set<String> roleNames = new HashSet<>();
+        if (entity.getRoles() != null) {
+            roleNames = entity.getRoles().stream()
+                    .map(Role::getName) // o Role::getDisplayName si prefieres
+                    .collect(Collectors.toSet());
+        }
+        return toDTO(entity, roleNames);
+    }
+
+
+    /**
+     * Convierte una entidad {@link User} a {@link UserDTO} con los nombres de rol ya leídos.
+     * No toca la colección perezosa {@code roles}: pensado para listados donde los roles de
+     * toda la página se cargan con una sola consulta.
+     */
+    public static UserDTO toDTO(User entity, Set<String> roleNames) {
+        if (entity == null) return null;
+
+
         UserDTO dto = new UserDTO();
         dto.setId(entity.getId());
         dto.setEmail(entity.getEmail());
@@ -39,19 +62,7 @@ public class UserMapper {
         dto.setFailedLoginAttempts(entity.getFailedLoginAttempts());
         dto.setEmailVerified(entity.isEmailVerified());
         dto.setMustChangePassword(entity.isMustChangePassword());
-
-
-        // ────────────────────────────────
-        // Cargar roles si existen
-        // ────────────────────────────────
-        if (entity.getRoles() != null && !entity.getRoles().isEmpty()) {
-            Set<String> roleNames = entity.getRoles().stream()
-                    .map(Role::getName) // o Role::getDisplayName si prefieres
-                    .collect(Collectors.toSet());
-            dto.setRoles(roleNames);
-        } else {
-            dto.setRoles(new HashSet<>());
-        }
+        dto.setRoles(roleNames != null ? roleNames : new HashSet<>());
 
 
         return dto;
@@ -67,6 +78,18 @@ public class UserMapper {
     }
 
 
+    /**
+     * Convierte una lista de entidades {@link User} usando los roles agrupados por id de usuario
+     * (los usuarios sin entrada en el mapa quedan sin roles).
+     */
+    public static List<UserDTO> toDTOList(List<User> entities, Map<Long, Set<String>> roleNamesByUserId) {
+        if (entities == null) return List.of();
+        return entities.stream()
+                .map(u -> toDTO(u, new HashSet<>(roleNamesByUserId.getOrDefault(u.getId(), Set.of()))))
+                .toList();
+    }
+
+
     // ─────────────────────────────────────────
     // Entity → DTO (detalle)
     // ─────────────────────────────────────────
@@ -0,0 +1,108 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories;
+
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.MailOutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio de la bandeja de salida de correo ({@code mail_outbox}).
+ * <p>
+ * Las operaciones del dispatcher son sentencias sueltas con su propia transacción corta:
+ * el envío SMTP ocurre fuera de cualquier transacción y no retiene conexiones.
+ * </p>
+ */
+public interface MailOutboxRepository extends JpaRepository<MailOutboxMessage, Long> {
+
+
+    /**
+     * Reserva de forma atómica hasta {@code limit} mensajes listos para enviar: pendientes cuyo
+     * reintento ya toca o reservas caducadas de un dispatcher que se cayó a mitad de envío.
+     * <p>
+     * Es un único {@code UPDATE ... ORDER BY ... LIMIT} (MariaDB), así que dos instancias nunca
+     * reservan el mismo mensaje.
+     * </p>
+     *
+     * @param token identificador de esta reserva.
+     * @param now   fecha/hora actual.
+     * @param until fin de la reserva.
+     * @param limit máximo de mensajes a reservar.
+     * @return mensajes reservados.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE mail_outbox SET status = 'SENDING', claim_token = :token, claimed_until = :until "
+            + "WHERE (status = 'PENDING' AND next_attempt_at <= :now) "
+            + "OR (status = 'SENDING' AND claimed_until < :now) "
+            + "ORDER BY next_attempt_at, id LIMIT :limit", nativeQuery = true)
+    int claimDue(@Param("token") String token,
+                 @Param("now") LocalDateTime now,
+                 @Param("until") LocalDateTime until,
+                 @Param("limit") int limit);
+
+
+    /**
+     * Mensajes de una reserva, en orden de llegada.
+     *
+     * @param claimToken identificador de la reserva.
+     * @return mensajes reservados con ese token.
+     */
+    List<MailOutboxMessage> findByClaimTokenOrderById(String claimToken);
+
+
+    /**
+     * Marca como enviados los mensajes indicados y libera su reserva.
+     *
+     * @param ids ids de los mensajes entregados.
+     * @param now fecha/hora de entrega.
+     * @return filas afectadas.
+     */
+    @Modifying
+    @Transactional
+    @Query("update MailOutboxMessage m set m.status = org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.MailOutboxMessage.Status.SENT, "
+            + "m.sentAt = :now, m.claimToken = null, m.claimedUntil = null where m.id in :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+
+    /**
+     * Registra un envío fallido: vuelve a {@code PENDING} con el siguiente reintento o
+     * queda como {@code DEAD}, y libera su reserva.
+     *
+     * @param id            id del mensaje.
+     * @param status        nuevo estado ({@code PENDING} o {@code DEAD}).
+     * @param attempts      intentos fallidos acumulados.
+     * @param nextAttemptAt momento del siguiente reintento.
+     * @param lastError     descripción del error (truncada).
+     * @return filas afectadas.
+     */
+    @Modifying
+    @Transactional
+    @Query("update MailOutboxMessage m set m.status = :status, m.attempts = :attempts, "
+            + "m.nextAttemptAt = :nextAttemptAt, m.lastError = :lastError, "
+            + "m.claimToken = null, m.claimedUntil = null where m.id = :id")
+    int markFailed(@Param("id") Long id,
+                   @Param("status") MailOutboxMessage.Status status,
+                   @Param("attempts") int attempts,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("lastError") String lastError);
+
+
+    /**
+     * Borra los mensajes enviados antes de una fecha (mantenimiento de la tabla).
+     *
+     * @param status estado a purgar ({@code SENT}).
+     * @param before fecha límite.
+     * @return filas borradas.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from MailOutboxMessage m where m.status = :status and m.sentAt < :before")
+    int deleteByStatusAndSentAtBefore(@Param("status") MailOutboxMessage.Status status,
+                                      @Param("before") LocalDateTime before);
+}
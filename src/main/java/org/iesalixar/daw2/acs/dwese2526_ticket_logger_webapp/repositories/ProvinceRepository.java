@@ -1,16 +1,153 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories;
 
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.TypeaheadHitDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Province;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Region;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProvinceRepository extends JpaRepository<Province, Long> {
     boolean existsByCode(String code);
     boolean existsByCodeAndIdNot(String code, Long id);
 
+    /**
+     * Listado paginado de provincias proyectado directamente a {@link ProvinceDTO}.
+     * <p>
+     * El nombre de la región se obtiene con un join en la misma consulta, evitando
+     * la carga perezosa de {@code region} fila a fila (N+1). Al devolver un {@link Slice}
+     * no se lanza {@code COUNT(*)}: se lee una fila de más para saber si hay página siguiente
+     * y el total, cuando hace falta, lo da {@code EntityCountService}.
+     * </p>
+     *
+     * @param pageable página, tamaño y orden (propiedades de {@link Province}, p.ej. {@code region.name}).
+     * @return porción de DTOs con id, código, nombre y nombre de la región.
+     */
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceDTO(p.id, p.code, p.name, r.name) " +
+            "from Province p join p.region r")
+    Slice<ProvinceDTO> findSliceAsDTO(Pageable pageable);
+
+    /**
+     * Primera página del listado por clave, ordenada por (name, id).
+     *
+     * @param limit página 0 con el número máximo de filas a leer.
+     * @return provincias proyectadas a {@link ProvinceDTO}.
+     */
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceDTO(p.id, p.code, p.name, r.name) " +
+            "from Province p join p.region r order by p.name asc, p.id asc")
+    List<ProvinceDTO> findKeysetFirstPage(Pageable limit);
+
+    /**
+     * Página siguiente del listado por clave: filas posteriores a (name, id) del cursor.
+     *
+     * @param name  nombre de la última provincia mostrada.
+     * @param id    id de la última provincia mostrada.
+     * @param limit página 0 con el número máximo de filas a leer.
+     * @return provincias proyectadas a {@link ProvinceDTO}.
+     */
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceDTO(p.id, p.code, p.name, r.name) " +
+            "from Province p join p.region r where (p.name, p.id) > (:name, :id) order by p.name asc, p.id asc")
+    List<ProvinceDTO> findKeysetPageAfter(@Param("name") String name, @Param("id") Long id, Pageable limit);
+
+    /**
+     * Primera página de las provincias de una región, ordenadas por (name, id).
+     *
+     * @param regionId id de la región.
+     * @param limit    página 0 con el número máximo de filas a leer.
+     * @return provincias proyectadas a {@link ProvinceDTO}.
+     */
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceDTO(p.id, p.code, p.name, r.name) " +
+            "from Province p join p.region r where r.id = :regionId order by p.name asc, p.id asc")
+    List<ProvinceDTO> findKeysetFirstPageByRegion(@Param("regionId") Long regionId, Pageable limit);
+
+    /**
+     * Página siguiente de las provincias de una región a partir del cursor (name, id).
+     * Usa el índice (region_id, name, id).
+     *
+     * @param regionId id de la región.
+     * @param name     nombre de la última provincia mostrada.
+     * @param id       id de la última provincia mostrada.
+     * @param limit    página 0 con el número máximo de filas a leer.
+     * @return provincias proyectadas a {@link ProvinceDTO}.
+     */
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceDTO(p.id, p.code, p.name, r.name) " +
+            "from Province p join p.region r where r.id = :regionId and (p.name, p.id) > (:name, :id) " +
+            "order by p.name asc, p.id asc")
+    List<ProvinceDTO> findKeysetPageByRegionAfter(@Param("regionId") Long regionId, @Param("name") String name,
+                                                  @Param("id") Long id, Pageable limit);
+
+    /**
+     * Número de provincias de una región (COUNT sobre el índice de region_id).
+     */
+    long countByRegionId(Long regionId);
+
+    /**
+     * Recorre todas las provincias (con el nombre de su región) con un cursor de solo avance.
+     * Debe consumirse dentro de una transacción y cerrarse.
+     *
+     * @return stream de provincias ordenadas por id.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceDTO(p.id, p.code, p.name, r.name) " +
+            "from Province p join p.region r order by p.id")
+    Stream<ProvinceDTO> streamAllAsDTO();
+
+    /**
+     * Datos de todas las provincias para cargar el índice de autocompletado.
+     *
+     * @return provincias con el id y nombre de su región.
+     */
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.TypeaheadHitDTO(p.id, p.code, p.name, r.id, r.name) " +
+            "from Province p join p.region r")
+    List<TypeaheadHitDTO> findAllForIndex();
+
+    /**
+     * Actualiza una provincia en una sola sentencia, sin cargar la entidad.
+     * Los códigos duplicados y las regiones inexistentes los rechazan las restricciones de la tabla.
+     *
+     * @param region referencia (sin cargar) a la región destino.
+     * @return filas afectadas (0 si la provincia no existe).
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Province p set p.code = :code, p.name = :name, p.region = :region where p.id = :id")
+    int updateProvince(@Param("id") Long id, @Param("code") String code, @Param("name") String name,
+                       @Param("region") Region region);
+
+    /**
+     * Ids de la colección que existen en la tabla (validación de un borrado masivo en una consulta).
+     */
+    @Query("select p.id from Province p where p.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Borra las provincias indicadas en una sola sentencia.
+     *
+     * @return filas borradas.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Province p where p.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Borra en una sola sentencia todas las provincias de las regiones indicadas
+     * (paso previo obligatorio al borrado de esas regiones).
+     *
+     * @return filas borradas.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Province p where p.region.id in :regionIds")
+    int deleteByRegionIdIn(@Param("regionIds") Collection<Long> regionIds);
+
 }
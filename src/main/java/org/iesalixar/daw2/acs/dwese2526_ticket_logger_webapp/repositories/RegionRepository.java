@@ -1,16 +1,102 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories;
 
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionOptionDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Region;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface RegionRepository extends JpaRepository<Region, Long> {
     boolean existsByCode(String code);
     boolean existsByCodeAndIdNot(String code, Long id);
-    @Query("select r from Region r left join fetch r.provinces where r.id = :id")
-    Optional<Region> findByIdWithProvinces(@Param("id") Long id);
+
+    /**
+     * Actualiza código y nombre en una sola sentencia, sin cargar la entidad.
+     * Un código duplicado lo rechaza el índice único de la tabla.
+     *
+     * @return filas afectadas (0 si la región no existe).
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Region r set r.code = :code, r.name = :name where r.id = :id")
+    int updateCodeAndName(@Param("id") Long id, @Param("code") String code, @Param("name") String name);
+
+    /**
+     * Ids de la colección que existen en la tabla (validación de un borrado masivo en una consulta).
+     */
+    @Query("select r.id from Region r where r.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Borra las regiones indicadas en una sola sentencia. Sus provincias deben borrarse antes
+     * ({@link ProvinceRepository#deleteByRegionIdIn}) por la clave ajena.
+     *
+     * @return filas borradas.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Region r where r.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Listado paginado sin {@code COUNT(*)}: se lee una fila de más para saber si hay página siguiente.
+     *
+     * @param pageable página, tamaño y orden.
+     * @return porción de regiones.
+     */
+    @Query("select r from Region r")
+    Slice<Region> findSlice(Pageable pageable);
+
+    /**
+     * Opciones para los desplegables de región, ya ordenadas por nombre.
+     *
+     * @return regiones proyectadas a {@link RegionOptionDTO}.
+     */
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionOptionDTO(r.id, r.code, r.name) " +
+            "from Region r order by r.name asc, r.id asc")
+    List<RegionOptionDTO> findAllForSelect();
+
+    /**
+     * Primera página del listado por clave, ordenada por (name, id).
+     *
+     * @param limit página 0 con el número máximo de filas a leer.
+     * @return regiones proyectadas a {@link RegionDTO}.
+     */
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionDTO(r.id, r.code, r.name) " +
+            "from Region r order by r.name asc, r.id asc")
+    List<RegionDTO> findKeysetFirstPage(Pageable limit);
+
+    /**
+     * Página siguiente del listado por clave: filas posteriores a (name, id) del cursor.
+     * La comparación de tuplas permite a MariaDB recorrer el índice (name, id) sin OFFSET.
+     *
+     * @param name  nombre de la última región mostrada.
+     * @param id    id de la última región mostrada.
+     * @param limit página 0 con el número máximo de filas a leer.
+     * @return regiones proyectadas a {@link RegionDTO}.
+     */
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionDTO(r.id, r.code, r.name) " +
+            "from Region r where (r.name, r.id) > (:name, :id) order by r.name asc, r.id asc")
+    List<RegionDTO> findKeysetPageAfter(@Param("name") String name, @Param("id") Long id, Pageable limit);
+
+    /**
+     * Recorre todas las regiones como {@link RegionDTO} con un cursor de solo avance.
+     * El fetch size hace que el driver de MariaDB traiga las filas por bloques en lugar
+     * de materializar toda la tabla. Debe consumirse dentro de una transacción y cerrarse.
+     *
+     * @return stream de regiones ordenadas por id.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionDTO(r.id, r.code, r.name) " +
+            "from Region r order by r.id")
+    Stream<RegionDTO> streamAllAsDTO();
 }
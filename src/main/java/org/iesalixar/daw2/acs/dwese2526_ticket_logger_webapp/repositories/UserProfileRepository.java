@@ -3,10 +3,45 @@ package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Region;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.UserProfile;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserProfileRepository extends JpaRepository<UserProfile, Long> {
     Optional<UserProfile> findByUserId(Long userId);
     boolean existsByUserId(Long userId);
+
+    /** Perfiles que usan esa imagen (los ficheros subidos se comparten por contenido). */
+    long countByProfileImage(String profileImage);
+
+    /**
+     * Imágenes de perfil de esos usuarios (para liberarlas al borrarlos en bloque).
+     *
+     * @param userIds ids de usuario.
+     * @return rutas web de las imágenes (sin nulos).
+     */
+    @Query("select p.profileImage from UserProfile p where p.user.id in :userIds and p.profileImage is not null")
+    List<String> findProfileImagesByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * De las rutas indicadas, las que usa algún perfil (consulta por lotes del recolector de huérfanos).
+     *
+     * @param profileImages rutas web a comprobar.
+     * @return rutas referenciadas (sin repetir).
+     */
+    @Query("select distinct p.profileImage from UserProfile p where p.profileImage in :profileImages")
+    List<String> findReferencedImages(@Param("profileImages") Collection<String> profileImages);
+
+    /**
+     * Rutas de imagen que empiezan por el prefijo indicado (usa el índice de {@code profile_image}).
+     * {@code !} es el carácter de escape de {@code %} y {@code _} en el prefijo.
+     *
+     * @param prefix prefijo con el comodín final, p. ej. {@code /uploads/<hash>.%}.
+     * @return rutas referenciadas (sin repetir).
+     */
+    @Query("select distinct p.profileImage from UserProfile p where p.profileImage like :prefix escape '!'")
+    List<String> findReferencedImagesLike(@Param("prefix") String prefix);
 }
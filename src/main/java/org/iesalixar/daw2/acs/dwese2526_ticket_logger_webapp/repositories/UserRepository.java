@@ -1,13 +1,27 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories;
 
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserExportDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserListItemDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserLockStateDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserRoleNameDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Region;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.User;
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Interfaz para operaciones CRUD sobre la entidad {@link User}.
@@ -28,4 +42,166 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByEmailIgnoreCase(String email);
 
+    /**
+     * Listado paginado sin {@code COUNT(*)}: se lee una fila de más para saber si hay página siguiente.
+     * Solo se seleccionan las columnas de la tabla del listado.
+     *
+     * @param pageable página, tamaño y orden.
+     * @return porción de filas del listado.
+     */
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserListItemDTO(u.id, u.email, u.active, u.accountNonLocked) from User u")
+    Slice<UserListItemDTO> findListItems(Pageable pageable);
+
+    /**
+     * Sustituye el hash de la contraseña (misma contraseña, coste de BCrypt mayor) tras un login
+     * correcto. No toca las fechas de cambio ni de expiración.
+     *
+     * @return filas afectadas.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.passwordHash = :passwordHash where u.email = :email")
+    int updatePasswordHash(@Param("email") String email, @Param("passwordHash") String passwordHash);
+
+    /**
+     * Nombres de rol de varios usuarios en una sola consulta (join con {@code user_roles}).
+     * Sustituye a la inicialización perezosa de {@code roles} usuario a usuario en los listados.
+     *
+     * @param ids ids de los usuarios de la página.
+     * @return un par (usuario, rol) por cada rol asignado.
+     */
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserRoleNameDTO(u.id, r.name) " +
+            "from User u join u.roles r where u.id in :ids")
+    List<UserRoleNameDTO> findRoleNamesByUserIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Primera página del listado por clave, ordenada por (email, id).
+     *
+     * @param limit página 0 con el número máximo de filas a leer.
+     * @return filas del listado de la página.
+     */
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserListItemDTO(u.id, u.email, u.active, u.accountNonLocked) " +
+            "from User u order by u.email asc, u.id asc")
+    List<UserListItemDTO> findKeysetFirstPage(Pageable limit);
+
+    /**
+     * Página siguiente del listado por clave: usuarios posteriores a (email, id) del cursor.
+     * Usa el índice UNIQUE de {@code email} en lugar de descartar filas con OFFSET.
+     *
+     * @param email email del último usuario mostrado.
+     * @param id    id del último usuario mostrado.
+     * @param limit página 0 con el número máximo de filas a leer.
+     * @return filas del listado de la página.
+     */
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserListItemDTO(u.id, u.email, u.active, u.accountNonLocked) " +
+            "from User u where (u.email, u.id) > (:email, :id) order by u.email asc, u.id asc")
+    List<UserListItemDTO> findKeysetPageAfter(@Param("email") String email, @Param("id") Long id, Pageable limit);
+
+    /**
+     * Email y estado de bloqueo actuales, sin cargar la entidad.
+     *
+     * @param id id del usuario.
+     * @return estado del usuario, si existe.
+     */
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserLockStateDTO(u.email, u.accountNonLocked) " +
+            "from User u where u.id = :id")
+    Optional<UserLockStateDTO> findLockStateById(@Param("id") Long id);
+
+    /**
+     * Recorre todos los usuarios como {@link UserExportDTO} con un cursor de solo avance.
+     * Al no cargar entidades no se dispara la consulta del perfil (el {@code @OneToOne} inverso
+     * no puede ser perezoso) ni se llena el contexto de persistencia. Debe consumirse dentro de
+     * una transacción y cerrarse.
+     *
+     * @return stream de usuarios ordenados por id.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserExportDTO(" +
+            "u.id, u.email, u.active, u.accountNonLocked, u.emailVerified, u.mustChangePassword, " +
+            "u.lastPasswordChange, u.passwordExpiresAt) from User u order by u.id")
+    Stream<UserExportDTO> streamAllAsDTO();
+
+    /**
+     * Actualiza los datos editables de un usuario en una sola sentencia, sin cargarlo.
+     * Los campos de contraseña solo cambian si se pasan valores no nulos. Un email repetido
+     * lo rechaza el índice único de la tabla.
+     *
+     * @return filas afectadas (0 si el usuario no existe).
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.email = :email, u.active = :active, u.accountNonLocked = :accountNonLocked, " +
+            "u.failedLoginAttempts = :failedLoginAttempts, u.emailVerified = :emailVerified, " +
+            "u.mustChangePassword = :mustChangePassword, " +
+            "u.passwordHash = coalesce(:passwordHash, u.passwordHash), " +
+            "u.lastPasswordChange = coalesce(:lastPasswordChange, u.lastPasswordChange), " +
+            "u.passwordExpiresAt = coalesce(:passwordExpiresAt, u.passwordExpiresAt) " +
+            "where u.id = :id")
+    int updateUser(@Param("id") Long id,
+                   @Param("email") String email,
+                   @Param("active") boolean active,
+                   @Param("accountNonLocked") boolean accountNonLocked,
+                   @Param("failedLoginAttempts") Integer failedLoginAttempts,
+                   @Param("emailVerified") boolean emailVerified,
+                   @Param("mustChangePassword") boolean mustChangePassword,
+                   @Param("passwordHash") String passwordHash,
+                   @Param("lastPasswordChange") LocalDateTime lastPasswordChange,
+                   @Param("passwordExpiresAt") LocalDateTime passwordExpiresAt);
+
+    /**
+     * Quita al usuario los roles que no estén en {@code roleIds}.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM user_roles WHERE user_id = :userId AND role_id NOT IN (:roleIds)", nativeQuery = true)
+    int deleteRolesNotIn(@Param("userId") Long userId, @Param("roleIds") Collection<Long> roleIds);
+
+    /**
+     * Ids de la colección que existen en la tabla (validación de un borrado masivo en una consulta).
+     */
+    @Query("select u.id from User u where u.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Borra los tokens de recuperación de los usuarios indicados (su FK no tiene ON DELETE CASCADE).
+     */
+    @Modifying
+    @Query(value = "DELETE FROM password_reset_tokens WHERE user_id IN (:ids)", nativeQuery = true)
+    int deletePasswordResetTokensByUserIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Borra las filas de {@code user_roles} de los usuarios indicados.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM user_roles WHERE user_id IN (:ids)", nativeQuery = true)
+    int deleteRolesByUserIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Borra los perfiles de los usuarios indicados.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM user_profiles WHERE user_id IN (:ids)", nativeQuery = true)
+    int deleteProfilesByUserIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Borra los usuarios indicados en una sola sentencia. Las tablas hijas deben vaciarse antes.
+     *
+     * @return filas borradas.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM users WHERE id IN (:ids)", nativeQuery = true)
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Quita al usuario todos sus roles.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM user_roles WHERE user_id = :userId", nativeQuery = true)
+    int deleteAllRoles(@Param("userId") Long userId);
+
+    /**
+     * Añade al usuario los roles de {@code roleIds} que aún no tenga.
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO user_roles (user_id, role_id) " +
+            "SELECT :userId, r.id FROM roles r WHERE r.id IN (:roleIds)", nativeQuery = true)
+    int insertMissingRoles(@Param("userId") Long userId, @Param("roleIds") Collection<Long> roleIds);
+
 }
@@ -0,0 +1,59 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Ejecuta una acción cuando la transacción actual confirme.
+ * <p>
+ * Lo usan las caches y estructuras en memoria que se invalidan por escrituras y las tareas
+ * sobre ficheros: si la transacción se deshace la acción no se ejecuta, y si no hay
+ * transacción activa se ejecuta inmediatamente.
+ * </p>
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Ejecuta la acción tras el commit de la transacción actual (o ya, si no hay transacción).
+     *
+     * @param action acción a ejecutar.
+     */
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Como {@link #run(Runnable)}, pero en {@code afterCompletion} con la transacción confirmada:
+     * después de todos los {@code afterCommit} de la transacción (por ejemplo, las
+     * invalidaciones de {@code TransactionAwareCacheManagerProxy}), sea cual sea el orden en
+     * que se registraron.
+     *
+     * @param action acción a ejecutar.
+     */
+    public static void runAfterCompletion(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
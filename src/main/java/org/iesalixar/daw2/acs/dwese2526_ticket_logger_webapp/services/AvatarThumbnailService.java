@@ -0,0 +1,58 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+/**
+ * Miniaturas de las imágenes de perfil.
+ * <p>
+ * Cada imagen subida se decodifica una vez en segundo plano y se guardan versiones cuadradas
+ * de tamaño fijo junto al original ({@code <nombre>_<px>.png|jpg}). Las vistas piden la URL
+ * para el tamaño al que la muestran y reciben la versión más pequeña que basta, o el original
+ * mientras las miniaturas no estén listas.
+ * </p>
+ */
+public interface AvatarThumbnailService {
+
+    /**
+     * Programa la generación de miniaturas de una imagen tras el commit de la transacción
+     * actual (o ya, si no hay transacción).
+     *
+     * @param webPath ruta web de la imagen original ({@code /uploads/<nombre>}).
+     */
+    void enqueue(String webPath);
+
+    /**
+     * URL de la imagen para mostrarla a {@code px} píxeles: la miniatura más pequeña de al
+     * menos ese tamaño, o el original si no hay ninguna lista (o si {@code px} es mayor que
+     * todas).
+     *
+     * @param webPath ruta web de la imagen original (se devuelve tal cual si no es una subida).
+     * @param px      tamaño de visualización en píxeles.
+     * @return URL a usar en el {@code src}.
+     */
+    String url(String webPath, int px);
+
+    /**
+     * Borra las miniaturas de una imagen (cuando se borra el original).
+     *
+     * @param fileName nombre del fichero original dentro de {@code uploads}.
+     */
+    void deleteRenditions(String fileName);
+
+    /**
+     * Indica si el fichero es una miniatura cuyo original ya no existe (con cualquier extensión;
+     * un original sin perfil que lo use no cuenta, porque el recolector también lo retira).
+     * Borrar una miniatura nunca es irreversible: se vuelve a generar la próxima vez que se
+     * muestre el original.
+     *
+     * @param fileName nombre del fichero dentro de {@code uploads}.
+     * @return {@code true} si es una miniatura huérfana.
+     */
+    boolean isOrphanRendition(String fileName);
+
+    /**
+     * Indica si el nombre corresponde a una miniatura ({@code <nombre>_<px>.png|jpg}).
+     *
+     * @param fileName nombre del fichero dentro de {@code uploads}.
+     * @return {@code true} si es una miniatura.
+     */
+    boolean isRendition(String fileName);
+}
@@ -0,0 +1,379 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.UserProfileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Implementación de las miniaturas con Java2D/ImageIO en un ejecutor acotado.
+ * <p>
+ * La imagen se decodifica una sola vez (comprobando antes sus dimensiones para no abrir
+ * imágenes desproporcionadas), se recorta al cuadrado central y se reduce de mayor a menor
+ * tamaño partiendo siempre del resultado anterior. Las imágenes con transparencia se guardan
+ * en PNG y el resto en JPEG; ImageIO no trae codificador WebP.
+ * </p>
+ * <p>
+ * El ejecutor tiene hilos y cola fijos: si se llena, la subida no falla, simplemente se sigue
+ * sirviendo el original y las miniaturas se vuelven a pedir la próxima vez que se muestre.
+ * No se publica como bean para no desplazar al ejecutor de tareas de Spring Boot.
+ * </p>
+ */
+@Service
+public class AvatarThumbnailServiceImpl implements AvatarThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarThumbnailServiceImpl.class);
+
+    /** Tamaños generados (lado en píxeles), de menor a mayor. */
+    static final int[] SIZES = {32, 96, 256};
+
+    /** Máximo de píxeles que se aceptan decodificar (protección frente a "bombas" de imagen). */
+    private static final long MAX_PIXELS = 40_000_000L;
+
+    private static final String UPLOADS_PREFIX = "/uploads/";
+
+    /** {@code <nombre>_<px>.png|jpg}; los nombres de los originales (hash o UUID) no llevan "_". */
+    private static final Pattern RENDITION_NAME = Pattern.compile("(.+)_(\\d+)\\.(png|jpg)");
+
+    /**
+     * Extensiones más habituales de los originales: solo sirven para resolver sin consultar la
+     * base de datos; cualquier otra la encuentra la consulta por prefijo.
+     */
+    private static final String[] COMMON_EXTENSIONS = {"jpg", "jpeg", "png", "gif", "webp"};
+    private static final String EXECUTOR_NAME = "avatar.thumbnails";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Value("${app.upload-root}")
+    private String uploadRootPath;
+
+    @Value("${app.uploads.thumbnails.threads:1}")
+    private int threads;
+
+    @Value("${app.uploads.thumbnails.queue-capacity:100}")
+    private int queueCapacity;
+
+    /** Miniaturas encontradas ("" = aún no existe; se vuelve a comprobar al caducar). */
+    private final Cache<String, String> renditions = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .build();
+
+    /** Imágenes que no se pudieron decodificar: no se reintentan en cada visualización. */
+    private final Cache<String, Boolean> failed = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService executor;
+    private Timer generationTimer;
+    private Counter rejected;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "avatar-thumbnails-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, EXECUTOR_NAME);
+        generationTimer = Timer.builder(EXECUTOR_NAME + ".generation")
+                .description("Tiempo de decodificar una imagen y generar sus miniaturas")
+                .register(meterRegistry);
+        rejected = Counter.builder(EXECUTOR_NAME + ".rejected")
+                .description("Trabajos de miniaturas descartados por cola llena")
+                .register(meterRegistry);
+        logger.info("Miniaturas de avatar: tamaños={}, hilos={}, cola={}", Arrays.toString(SIZES), threads, queueCapacity);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public void enqueue(String webPath) {
+        String fileName = fileName(webPath);
+        if (fileName == null) {
+            return;
+        }
+        AfterCommit.run(() -> submit(fileName));
+    }
+
+    @Override
+    public String url(String webPath, int px) {
+        String fileName = fileName(webPath);
+        if (fileName == null) {
+            return webPath;
+        }
+        for (int size : SIZES) {
+            if (size >= px) {
+                String rendition = findRendition(fileName, size);
+                if (rendition != null) {
+                    return rendition;
+                }
+                // Aún no generadas (o perdidas): se piden y mientras tanto se sirve el original
+                submit(fileName);
+                return webPath;
+            }
+        }
+        return webPath;
+    }
+
+    @Override
+    public void deleteRenditions(String fileName) {
+        for (int size : SIZES) {
+            for (String format : new String[]{"png", "jpg"}) {
+                try {
+                    Files.deleteIfExists(uploadsDir().resolve(renditionName(fileName, size, format)));
+                } catch (IOException e) {
+                    logger.warn("No se pudo borrar la miniatura {}px de {}: {}", size, fileName, e.getMessage());
+                }
+            }
+            renditions.invalidate(key(fileName, size));
+        }
+    }
+
+    @Override
+    public boolean isRendition(String fileName) {
+        return RENDITION_NAME.matcher(fileName).matches();
+    }
+
+    @Override
+    public boolean isOrphanRendition(String fileName) {
+        Matcher matcher = RENDITION_NAME.matcher(fileName);
+        if (!matcher.matches()) {
+            return false;
+        }
+        String base = matcher.group(1);
+        Path dir = uploadsDir();
+        if (Files.exists(dir.resolve(base))) {
+            return false;
+        }
+        for (String extension : COMMON_EXTENSIONS) {
+            if (Files.exists(dir.resolve(base + "." + extension))) {
+                return false;
+            }
+        }
+        // Cualquier extensión: el original que importa es el que referencia algún perfil.
+        // Listar "<base>.*" obligaría a recorrer todo el directorio por cada miniatura.
+        String prefix = UPLOADS_PREFIX + escapeLike(base) + ".%";
+        for (String webPath : userProfileRepository.findReferencedImagesLike(prefix)) {
+            if (Files.exists(dir.resolve(webPath.substring(UPLOADS_PREFIX.length())))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    private void submit(String fileName) {
+        if (failed.getIfPresent(fileName) != null || !inFlight.add(fileName)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generationTimer.record(() -> generate(fileName));
+                } finally {
+                    inFlight.remove(fileName);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(fileName);
+            rejected.increment();
+            logger.warn("Cola de miniaturas llena, se aplaza {}", fileName);
+        }
+    }
+
+    private void generate(String fileName) {
+        Path source = uploadsDir().resolve(fileName);
+        if (!Files.exists(source) || findRendition(fileName, SIZES[SIZES.length - 1]) != null) {
+            return;
+        }
+        try {
+            BufferedImage image = decode(source);
+            if (image == null) {
+                failed.put(fileName, Boolean.TRUE);
+                logger.info("Imagen {} sin decodificador o demasiado grande: se servirá el original", fileName);
+                return;
+            }
+            boolean alpha = image.getColorModel().hasAlpha();
+            String format = alpha ? "png" : "jpg";
+
+            // De mayor a menor, reduciendo cada vez desde la versión anterior
+            BufferedImage current = cropSquare(image);
+            for (int i = SIZES.length - 1; i >= 0; i--) {
+                int size = SIZES[i];
+                current = scale(current, size, alpha);
+                String name = renditionName(fileName, size, format);
+                write(current, format, uploadsDir().resolve(name));
+                renditions.put(key(fileName, size), UPLOADS_PREFIX + name);
+            }
+            logger.debug("Miniaturas de {} generadas ({})", fileName, format);
+        } catch (IOException | RuntimeException e) {
+            failed.put(fileName, Boolean.TRUE);
+            logger.warn("No se pudieron generar las miniaturas de {}: {}", fileName, e.getMessage());
+        }
+    }
+
+    /** Decodifica la primera imagen del fichero, o {@code null} si no hay lector o excede {@link #MAX_PIXELS}. */
+    private BufferedImage decode(Path source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > MAX_PIXELS) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage cropSquare(BufferedImage image) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        int x = (image.getWidth() - side) / 2;
+        int y = (image.getHeight() - side) / 2;
+        return image.getSubimage(x, y, side, side);
+    }
+
+    /** Reduce a la mitad mientras se pueda (mejor calidad que un solo salto) y ajusta al tamaño final. */
+    private BufferedImage scale(BufferedImage image, int size, boolean alpha) {
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= size) {
+            current = draw(current, current.getWidth() / 2, alpha);
+        }
+        // El original siempre se redibuja al menos una vez para normalizar su tipo (RGB/ARGB)
+        return current.getWidth() == size && current != image ? current : draw(current, size, alpha);
+    }
+
+    private BufferedImage draw(BufferedImage source, int side, boolean alpha) {
+        BufferedImage target = new BufferedImage(side, side,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, side, side, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    /** Escribe en un temporal y lo mueve: una miniatura nunca se sirve a medio escribir. */
+    private void write(BufferedImage image, String format, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".thumb-", ".tmp");
+        try {
+            if (!ImageIO.write(image, format, temp.toFile())) {
+                throw new IOException("Sin codificador para " + format);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private String findRendition(String fileName, int size) {
+        String cached = renditions.get(key(fileName, size), k -> {
+            for (String format : new String[]{"png", "jpg"}) {
+                String name = renditionName(fileName, size, format);
+                if (Files.exists(uploadsDir().resolve(name))) {
+                    return UPLOADS_PREFIX + name;
+                }
+            }
+            return "";
+        });
+        return cached.isEmpty() ? null : cached;
+    }
+
+    /** Nombre del fichero dentro de {@code uploads}, o {@code null} si no es una subida propia. */
+    private String fileName(String webPath) {
+        if (webPath == null || !webPath.startsWith(UPLOADS_PREFIX)) {
+            return null;
+        }
+        String name = webPath.substring(UPLOADS_PREFIX.length());
+        return name.isEmpty() || name.contains("/") || name.startsWith(".") ? null : name;
+    }
+
+    static String renditionName(String fileName, int size, String format) {
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return base + "_" + size + "." + format;
+    }
+
+    private String key(String fileName, int size) {
+        return fileName + "#" + size;
+    }
+
+    private Path uploadsDir() {
+        return Paths.get(uploadRootPath).resolve("uploads");
+    }
+}
@@ -0,0 +1,44 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+
+/**
+ * Clasifica las violaciones de integridad devueltas por la base de datos.
+ * <p>
+ * Las escrituras no comprueban antes si el código o el email ya existen: se apoyan en las
+ * restricciones {@code UNIQUE} y {@code FOREIGN KEY} de {@code schema.sql} y, si salta una,
+ * el servicio la traduce a la excepción de negocio correspondiente.
+ * </p>
+ */
+final class ConstraintViolations {
+
+    /** MariaDB/MySQL: entrada duplicada en un índice único. */
+    private static final int ER_DUP_ENTRY = 1062;
+
+    /** MariaDB/MySQL: la fila referenciada por la clave ajena no existe. */
+    private static final int ER_NO_REFERENCED_ROW = 1452;
+
+    private ConstraintViolations() {
+    }
+
+    static boolean isDuplicateKey(DataIntegrityViolationException e) {
+        SQLException sql = findSqlException(e);
+        return sql != null && (sql.getErrorCode() == ER_DUP_ENTRY || "23505".equals(sql.getSQLState()));
+    }
+
+    static boolean isMissingReference(DataIntegrityViolationException e) {
+        SQLException sql = findSqlException(e);
+        return sql != null && (sql.getErrorCode() == ER_NO_REFERENCED_ROW || "23503".equals(sql.getSQLState()));
+    }
+
+    private static SQLException findSqlException(Throwable e) {
+        for (Throwable t = e; t != null && t.getCause() != t; t = t.getCause()) {
+            if (t instanceof SQLException sql) {
+                return sql;
+            }
+        }
+        return null;
+    }
+}
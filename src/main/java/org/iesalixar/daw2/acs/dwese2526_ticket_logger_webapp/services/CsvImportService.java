@@ -0,0 +1,9 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ImportResultDTO;
+import org.springframework.web.multipart.MultipartFile;
+
+public interface CsvImportService {
+    ImportResultDTO importRegions(MultipartFile file);
+    ImportResultDTO importProvinces(MultipartFile file);
+}
@@ -0,0 +1,329 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.config.CacheConfig;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ImportResultDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.InvalidFileException;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.EntityCountService.CountedTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Importación masiva de regiones y provincias desde ficheros CSV.
+ * <p>
+ * El fichero se lee línea a línea (sin cargarlo entero en memoria) y las filas válidas se
+ * escriben con JDBC en lotes de {@link #BATCH_SIZE}, cada lote en su propia transacción.
+ * Por cada lote se hace una única consulta {@code WHERE code IN (...)} para detectar códigos
+ * ya existentes, y los códigos de región de las provincias se resuelven una sola vez al inicio.
+ * </p>
+ * <p>Formatos admitidos (la cabecera es opcional):</p>
+ * <ul>
+ *   <li>Regiones: {@code code,name}</li>
+ *   <li>Provincias: {@code code,name,regionCode}</li>
+ * </ul>
+ */
+@Service
+public class CsvImportServiceImpl implements CsvImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvImportServiceImpl.class);
+
+    /** Filas por lote JDBC y por transacción. */
+    private static final int BATCH_SIZE = 1000;
+
+    /** Longitudes máximas (mismas restricciones que las entidades). */
+    private static final int REGION_CODE_MAX = 2;
+    private static final int PROVINCE_CODE_MAX = 10;
+    private static final int NAME_MAX = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ReferenceDataVersionService referenceDataVersionService;
+
+    @Autowired
+    private TypeaheadService typeaheadService;
+
+    @Autowired
+    private EntityCountService entityCountService;
+
+    /** Fila válida pendiente de insertar. */
+    private record CsvRow(int line, String code, String name, Long regionId) {
+    }
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.REGIONS_PAGE, allEntries = true),
+            @CacheEvict(value = CacheConfig.REGIONS_ALL, allEntries = true)
+    })
+    public ImportResultDTO importRegions(MultipartFile file) {
+        logger.info("Importando regiones desde {}", file.getOriginalFilename());
+        ImportResultDTO result = new ImportResultDTO();
+        Set<String> seenCodes = new HashSet<>();
+        List<CsvRow> chunk = new ArrayList<>(BATCH_SIZE);
+
+        try (BufferedReader reader = openReader(file)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (isHeaderOrBlank(line, lineNumber)) {
+                    continue;
+                }
+                result.setProcessed(result.getProcessed() + 1);
+
+                List<String> fields = parseLine(line);
+                if (fields.size() != 2) {
+                    result.addError(lineNumber, "se esperaban 2 columnas (code,name)");
+                    continue;
+                }
+                String code = fields.get(0);
+                String name = fields.get(1);
+                String error = validate(code, REGION_CODE_MAX, name);
+                if (error != null) {
+                    result.addError(lineNumber, error);
+                    continue;
+                }
+                if (!seenCodes.add(code)) {
+                    result.addError(lineNumber, "código repetido en el fichero (" + code + ")");
+                    continue;
+                }
+
+                chunk.add(new CsvRow(lineNumber, code, name, null));
+                if (chunk.size() == BATCH_SIZE) {
+                    flushChunk("regions", chunk, result);
+                    chunk.clear();
+                }
+            }
+            flushChunk("regions", chunk, result);
+        } catch (IOException e) {
+            throw new InvalidFileException("region", "file", file.getOriginalFilename(), e.getMessage());
+        }
+
+        if (result.getInserted() > 0) {
+            referenceDataVersionService.regionsChanged();
+            entityCountService.rowsChanged(CountedTable.REGIONS);
+            typeaheadService.rebuild();
+        }
+        logger.info("Importación de regiones terminada: procesadas={}, insertadas={}, rechazadas={}",
+                result.getProcessed(), result.getInserted(), result.getRejected());
+        return result;
+    }
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.PROVINCES_PAGE, allEntries = true),
+            @CacheEvict(value = CacheConfig.PROVINCES_ALL, allEntries = true),
+            @CacheEvict(value = CacheConfig.REGION_DETAIL, allEntries = true)
+    })
+    public ImportResultDTO importProvinces(MultipartFile file) {
+        logger.info("Importando provincias desde {}", file.getOriginalFilename());
+        ImportResultDTO result = new ImportResultDTO();
+        Set<String> seenCodes = new HashSet<>();
+        List<CsvRow> chunk = new ArrayList<>(BATCH_SIZE);
+
+        // Los codigos de region se resuelven una sola vez para todo el fichero
+        Map<String, Long> regionIdsByCode = new HashMap<>();
+        jdbcTemplate.query("SELECT code, id FROM regions",
+                (RowCallbackHandler) rs -> regionIdsByCode.put(rs.getString("code"), rs.getLong("id")));
+
+        try (BufferedReader reader = openReader(file)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (isHeaderOrBlank(line, lineNumber)) {
+                    continue;
+                }
+                result.setProcessed(result.getProcessed() + 1);
+
+                List<String> fields = parseLine(line);
+                if (fields.size() != 3) {
+                    result.addError(lineNumber, "se esperaban 3 columnas (code,name,regionCode)");
+                    continue;
+                }
+                String code = fields.get(0);
+                String name = fields.get(1);
+                String error = validate(code, PROVINCE_CODE_MAX, name);
+                if (error != null) {
+                    result.addError(lineNumber, error);
+                    continue;
+                }
+                Long regionId = regionIdsByCode.get(fields.get(2));
+                if (regionId == null) {
+                    result.addError(lineNumber, "la región " + fields.get(2) + " no existe");
+                    continue;
+                }
+                if (!seenCodes.add(code)) {
+                    result.addError(lineNumber, "código repetido en el fichero (" + code + ")");
+                    continue;
+                }
+
+                chunk.add(new CsvRow(lineNumber, code, name, regionId));
+                if (chunk.size() == BATCH_SIZE) {
+                    flushChunk("provinces", chunk, result);
+                    chunk.clear();
+                }
+            }
+            flushChunk("provinces", chunk, result);
+        } catch (IOException e) {
+            throw new InvalidFileException("province", "file", file.getOriginalFilename(), e.getMessage());
+        }
+
+        if (result.getInserted() > 0) {
+            referenceDataVersionService.provincesChanged();
+            entityCountService.rowsChanged(CountedTable.PROVINCES);
+            typeaheadService.rebuild();
+        }
+        logger.info("Importación de provincias terminada: procesadas={}, insertadas={}, rechazadas={}",
+                result.getProcessed(), result.getInserted(), result.getRejected());
+        return result;
+    }
+
+    /**
+     * Inserta un lote en su propia transacción.
+     * <p>
+     * Primero descarta los códigos que ya existen en la tabla (una sola consulta IN) y después
+     * inserta el resto con {@link JdbcTemplate#batchUpdate}. Si el lote falla (p.ej. otro proceso
+     * insertó el mismo código a la vez) se revierte completo y sus filas se informan como error.
+     * </p>
+     *
+     * @param table  tabla destino ({@code regions} o {@code provinces}).
+     * @param chunk  filas válidas del lote.
+     * @param result resultado acumulado de la importación.
+     */
+    private void flushChunk(String table, List<CsvRow> chunk, ImportResultDTO result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            List<CsvRow> duplicated = new ArrayList<>();
+            Integer inserted = transactionTemplate.execute(status -> {
+                Set<String> existing = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                        "SELECT code FROM " + table + " WHERE code IN (:codes)",
+                        Map.of("codes", chunk.stream().map(CsvRow::code).toList()),
+                        String.class));
+
+                List<CsvRow> toInsert = new ArrayList<>(chunk.size());
+                for (CsvRow row : chunk) {
+                    if (existing.contains(row.code())) {
+                        duplicated.add(row);
+                    } else {
+                        toInsert.add(row);
+                    }
+                }
+
+                if ("regions".equals(table)) {
+                    jdbcTemplate.batchUpdate("INSERT INTO regions (code, name) VALUES (?, ?)",
+                            toInsert, BATCH_SIZE, (ps, row) -> {
+                                ps.setString(1, row.code());
+                                ps.setString(2, row.name());
+                            });
+                } else {
+                    jdbcTemplate.batchUpdate("INSERT INTO provinces (code, name, region_id) VALUES (?, ?, ?)",
+                            toInsert, BATCH_SIZE, (ps, row) -> {
+                                ps.setString(1, row.code());
+                                ps.setString(2, row.name());
+                                ps.setLong(3, row.regionId());
+                            });
+                }
+                return toInsert.size();
+            });
+
+            result.setInserted(result.getInserted() + (inserted != null ? inserted : 0));
+            for (CsvRow row : duplicated) {
+                result.addError(row.line(), "el código " + row.code() + " ya existe");
+            }
+        } catch (DataAccessException e) {
+            logger.error("Error insertando un lote en {} (líneas {}-{}): {}", table,
+                    chunk.get(0).line(), chunk.get(chunk.size() - 1).line(), e.getMessage());
+            for (CsvRow row : chunk) {
+                result.addError(row.line(), "no se pudo insertar el lote");
+            }
+        }
+    }
+
+    private BufferedReader openReader(MultipartFile file) throws IOException {
+        return new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /** La primera línea se trata como cabecera si empieza por "code". */
+    private boolean isHeaderOrBlank(String line, int lineNumber) {
+        if (line.isBlank()) {
+            return true;
+        }
+        String normalized = line.startsWith("\uFEFF") ? line.substring(1) : line;
+        return lineNumber == 1 && normalized.trim().toLowerCase().startsWith("code");
+    }
+
+    private String validate(String code, int codeMax, String name) {
+        if (code.isEmpty() || code.length() > codeMax) {
+            return "el código debe tener entre 1 y " + codeMax + " caracteres";
+        }
+        if (name.isEmpty() || name.length() > NAME_MAX) {
+            return "el nombre debe tener entre 1 y " + NAME_MAX + " caracteres";
+        }
+        return null;
+    }
+
+    /**
+     * Separa una línea CSV en campos (recortados). Admite campos entre comillas dobles
+     * con comas dentro y comillas escapadas como {@code ""}.
+     */
+    private List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\uFEFF' && i == 0) {
+                continue;
+            }
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString().trim());
+        return fields;
+    }
+}
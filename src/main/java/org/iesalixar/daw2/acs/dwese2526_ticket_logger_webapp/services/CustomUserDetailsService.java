@@ -1,16 +1,23 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
 
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.AuthUserSnapshotDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Role;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.User;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Servicio de Spring Security encargado de cargar un usuario desde base de datos
@@ -23,15 +30,20 @@ import java.util.stream.Collectors;
  * <ul>
  *   <li>Obtiene el usuario por email</li>
  *   <li>Devuelve un {@link org.springframework.security.core.userdetails.User} con sus roles</li>
- *   <li>Aplica únicamente el flag de cuenta activa ({@code active}) como "disabled"</li>
+ *   <li>Aplica el flag de cuenta activa ({@code active}) como "disabled"</li>
+ *   <li>Aplica el bloqueo de la cuenta por un administrador ({@code account_non_locked}); el de
+ *   intentos fallidos es temporal y lo aplica {@link LoginThrottleService}</li>
  * </ul>
  * </p>
  *
+ * <p>Los datos se sirven desde {@link UserDetailsCacheService}: una ráfaga de logins no vuelve a
+ * consultar {@code users} ni {@code user_roles} mientras la entrada siga vigente.</p>
+ *
  * <p>Más adelante se añadirán reglas adicionales de ciberseguridad:
- * bloqueo por intentos, expiración de contraseña, email verificado, etc.</p>
+ * expiración de contraseña, email verificado, etc.</p>
  */
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
 
     private static final Logger log = LoggerFactory.getLogger(CustomUserDetailsService.class);
@@ -41,6 +53,10 @@ public class CustomUserDetailsService implements UserDetailsService {
     private UserRepository userRepository;
 
 
+    @Autowired
+    private UserDetailsCacheService userDetailsCacheService;
+
+
     /**
      * Carga los detalles de autenticación/autorización del usuario a partir del "username".
      *
@@ -53,6 +69,7 @@ public class CustomUserDetailsService implements UserDetailsService {
      *   <li>{@code password}: hash BCrypt almacenado en {@code password_hash}</li>
      *   <li>{@code authorities}: roles tipo {@code ROLE_USER}, {@code ROLE_ADMIN}, etc.</li>
      *   <li>{@code disabled}: basado en {@code active}</li>
+     *   <li>{@code accountLocked}: basado en {@code account_non_locked}</li>
      * </ul>
      * </p>
      *
@@ -67,45 +84,72 @@ public class CustomUserDetailsService implements UserDetailsService {
         log.debug("Entrando en loadUserByUsername(username={})", username);
 
 
-        final String email = username;
+        // Solo se consulta la BD si el email no está en la cache (o ha sido invalidado)
+        AuthUserSnapshotDTO snapshot = userDetailsCacheService.get(username, this::loadSnapshot);
 
 
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> {
-                    log.warn("No se encontró usuario con email={}", email);
-                    return new UsernameNotFoundException("Usuario no encontrado: " + email);
-                });
-
-
-        // Construimos el UserDetails de Spring Security.
+        // Se construye un UserDetails nuevo en cada llamada: Spring Security borra la contraseña
+        // del objeto autenticado, así que nunca se entrega la instancia cacheada.
         // OJO: nunca loguear contraseñas ni hashes.
         // Se necesita el org.springframework.security.core.userdetails para poder diferenciarlo de nuestro User
         UserDetails userDetails = org.springframework.security.core.userdetails.User
-                .withUsername(user.getEmail())
-                .password(user.getPasswordHash())
-                .authorities(
-                        user.getRoles().stream()
-                                .map(role -> role.getName()) // ROLE_ADMIN, ROLE_USER...
-                                .collect(Collectors.toList())
-                                .toArray(new String[0])
-                )
+                .withUsername(snapshot.getEmail())
+                .password(snapshot.getPasswordHash())
+                .authorities(snapshot.getAuthorities())
                 // Versión mínima: sin reglas extra aún.
                 .accountExpired(false)
-                .accountLocked(false)
+                // Una cuenta bloqueada se rechaza antes de comprobar la contraseña (sin BCrypt)
+                .accountLocked(!snapshot.isAccountNonLocked())
                 .credentialsExpired(false)
-                .disabled(!user.isActive())
+                .disabled(!snapshot.isEnabled())
                 .build();
 
 
         // Log de salida
         log.debug("Saliendo de loadUserByUsername(email={}) -> authorities={}",
-                user.getEmail(),
-                userDetails.getAuthorities().stream()
-                        .map(a -> a.getAuthority())
-                        .collect(Collectors.toList())
-        );
+                snapshot.getEmail(), snapshot.getAuthorities());
 
 
         return userDetails;
     }
+
+
+    /**
+     * Guarda el hash regenerado con el coste de BCrypt actual. Spring Security lo invoca tras
+     * un login correcto cuando el hash guardado usa un coste menor ({@code upgradeEncoding}).
+     *
+     * @param user        usuario recién autenticado.
+     * @param newPassword hash nuevo de la misma contraseña.
+     * @return el mismo usuario con el hash nuevo.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        log.info("Actualizando el coste del hash de contraseña de {}", user.getUsername());
+        userRepository.updatePasswordHash(user.getUsername(), newPassword);
+        userDetailsCacheService.evictByEmail(user.getUsername());
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+
+
+    /**
+     * Lee el usuario y sus roles (una consulta con entity graph) y los reduce a los datos
+     * que necesita el login. Las autoridades se construyen una sola vez por entrada de cache.
+     */
+    private AuthUserSnapshotDTO loadSnapshot(String email) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> {
+                    log.warn("No se encontró usuario con email={}", email);
+                    return new UsernameNotFoundException("Usuario no encontrado: " + email);
+                });
+
+        List<GrantedAuthority> authorities = new ArrayList<>(user.getRoles().size());
+        for (Role role : user.getRoles()) {
+            authorities.add(new SimpleGrantedAuthority(role.getName())); // ROLE_ADMIN, ROLE_USER...
+        }
+        return new AuthUserSnapshotDTO(user.getId(), user.getEmail(), user.getPasswordHash(),
+                List.copyOf(authorities), user.isActive(), user.isAccountNonLocked());
+    }
 }
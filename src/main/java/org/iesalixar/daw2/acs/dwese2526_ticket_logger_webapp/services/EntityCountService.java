@@ -0,0 +1,38 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+/**
+ * Totales de filas de los listados sin lanzar un {@code COUNT(*)} en cada petición.
+ * <p>
+ * El total exacto se cachea y se invalida en cada alta o baja de la tabla; el total
+ * aproximado se toma de las estadísticas de MariaDB y basta cuando solo se muestra
+ * como orientación (listado en modo {@code Slice}).
+ * </p>
+ */
+public interface EntityCountService {
+
+    /** Tablas cuyos totales se cachean. */
+    enum CountedTable {
+        REGIONS("regions"),
+        PROVINCES("provinces"),
+        USERS("users");
+
+        private final String tableName;
+
+        CountedTable(String tableName) {
+            this.tableName = tableName;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+    }
+
+    /** Total exacto (cacheado hasta la siguiente alta o baja). */
+    long exactCount(CountedTable table);
+
+    /** Total aproximado según las estadísticas de la tabla (nunca negativo). */
+    long approximateCount(CountedTable table);
+
+    /** Invalida los totales de la tabla (tras el commit si hay transacción activa). */
+    void rowsChanged(CountedTable table);
+}
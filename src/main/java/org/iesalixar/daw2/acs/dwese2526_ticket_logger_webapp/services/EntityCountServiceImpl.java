@@ -0,0 +1,113 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementación en memoria de los totales de los listados.
+ * <p>
+ * Cada tabla tiene un contador de generación que se incrementa tras el commit de cada alta o
+ * baja. Un total solo se reutiliza si se calculó en la generación actual y no ha superado su
+ * TTL, así que una lectura que coincida con una escritura nunca deja cacheado un valor viejo.
+ * </p>
+ * <p>
+ * El total aproximado sale de {@code information_schema.TABLES.TABLE_ROWS}, que en InnoDB es
+ * una estimación mantenida por el motor (sin recorrer la tabla). Si ya hay un total exacto
+ * vigente se devuelve ese, y si la base de datos no publica la estimación se usa el exacto.
+ * </p>
+ */
+@Service
+public class EntityCountServiceImpl implements EntityCountService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityCountServiceImpl.class);
+
+    private static final String TABLE_ROWS_SQL =
+            "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.list.exact-count-ttl:10m}")
+    private Duration exactTtl;
+
+    @Value("${app.list.approximate-count-ttl:1m}")
+    private Duration approximateTtl;
+
+    private record CachedCount(long value, long generation, long loadedAtNanos) {
+    }
+
+    private final Map<CountedTable, AtomicLong> generations = new EnumMap<>(CountedTable.class);
+    private final Map<CountedTable, CachedCount> exactCounts = new ConcurrentHashMap<>();
+    private final Map<CountedTable, CachedCount> approximateCounts = new ConcurrentHashMap<>();
+
+    public EntityCountServiceImpl() {
+        for (CountedTable table : CountedTable.values()) {
+            generations.put(table, new AtomicLong());
+        }
+    }
+
+    @Override
+    public long exactCount(CountedTable table) {
+        long generation = generations.get(table).get();
+        CachedCount cached = exactCounts.get(table);
+        if (isValid(cached, generation, exactTtl)) {
+            return cached.value();
+        }
+        // El nombre de tabla sale del enum, nunca de la petición
+        Long value = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table.getTableName(), Long.class);
+        long count = value != null ? value : 0L;
+        exactCounts.put(table, new CachedCount(count, generation, System.nanoTime()));
+        return count;
+    }
+
+    @Override
+    public long approximateCount(CountedTable table) {
+        long generation = generations.get(table).get();
+        CachedCount exact = exactCounts.get(table);
+        if (isValid(exact, generation, exactTtl)) {
+            return exact.value();
+        }
+        CachedCount cached = approximateCounts.get(table);
+        if (isValid(cached, generation, approximateTtl)) {
+            return cached.value();
+        }
+
+        Long estimate = null;
+        try {
+            List<Long> rows = jdbcTemplate.queryForList(TABLE_ROWS_SQL, Long.class, table.getTableName());
+            estimate = rows.isEmpty() ? null : rows.get(0);
+        } catch (DataAccessException e) {
+            logger.debug("Sin estadísticas de {}: {}", table.getTableName(), e.getMessage());
+        }
+        if (estimate == null) {
+            return exactCount(table);
+        }
+        long count = Math.max(0L, estimate);
+        approximateCounts.put(table, new CachedCount(count, generation, System.nanoTime()));
+        return count;
+    }
+
+    @Override
+    public void rowsChanged(CountedTable table) {
+        AtomicLong generation = generations.get(table);
+        AfterCommit.run(generation::incrementAndGet);
+    }
+
+    private boolean isValid(CachedCount cached, long generation, Duration ttl) {
+        return cached != null
+                && cached.generation() == generation
+                && System.nanoTime() - cached.loadedAtNanos() < ttl.toNanos();
+    }
+}
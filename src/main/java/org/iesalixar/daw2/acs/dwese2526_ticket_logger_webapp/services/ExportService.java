@@ -0,0 +1,37 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import java.io.IOException;
+import java.io.Writer;
+
+public interface ExportService {
+
+    /** Formatos de exportación soportados. */
+    enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format fromParam(String value) {
+            return "ndjson".equalsIgnoreCase(value) ? NDJSON : CSV;
+        }
+    }
+
+    void exportRegions(Format format, Writer writer) throws IOException;
+    void exportProvinces(Format format, Writer writer) throws IOException;
+    void exportUsers(Format format, Writer writer) throws IOException;
+}
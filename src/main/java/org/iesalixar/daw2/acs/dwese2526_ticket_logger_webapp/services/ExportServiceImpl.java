@@ -0,0 +1,146 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserExportDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.ProvinceRepository;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.RegionRepository;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Exportación de regiones, provincias y usuarios en CSV o NDJSON (un objeto JSON por línea).
+ * <p>
+ * Las filas se leen de un {@link Stream} de solo avance del repositorio (con fetch size
+ * configurado para que el driver de MariaDB las vaya trayendo por bloques) y se escriben
+ * directamente en la respuesta, por lo que la memoria usada no depende del tamaño de la tabla.
+ * Todas las filas son proyecciones a DTO, así que no se carga ninguna entidad.
+ * </p>
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportServiceImpl.class);
+
+    /** Cada cuántas filas se vacía el buffer hacia el cliente. */
+    private static final int FLUSH_EVERY = 500;
+
+    @Autowired
+    private RegionRepository regionRepository;
+
+    @Autowired
+    private ProvinceRepository provinceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportRegions(Format format, Writer writer) throws IOException {
+        if (format == Format.CSV) {
+            writer.write("id,code,name\n");
+        }
+        long count = 0;
+        try (Stream<RegionDTO> rows = regionRepository.streamAllAsDTO()) {
+            Iterator<RegionDTO> it = rows.iterator();
+            while (it.hasNext()) {
+                RegionDTO region = it.next();
+                if (format == Format.CSV) {
+                    writer.write(region.getId() + "," + csv(region.getCode()) + "," + csv(region.getName()) + "\n");
+                } else {
+                    writer.write(objectMapper.writeValueAsString(region) + "\n");
+                }
+                flushIfNeeded(writer, ++count);
+            }
+        }
+        writer.flush();
+        logger.info("Exportadas {} regiones en formato {}", count, format);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportProvinces(Format format, Writer writer) throws IOException {
+        if (format == Format.CSV) {
+            writer.write("id,code,name,regionName\n");
+        }
+        long count = 0;
+        try (Stream<ProvinceDTO> rows = provinceRepository.streamAllAsDTO()) {
+            Iterator<ProvinceDTO> it = rows.iterator();
+            while (it.hasNext()) {
+                ProvinceDTO province = it.next();
+                if (format == Format.CSV) {
+                    writer.write(province.getId() + "," + csv(province.getCode()) + "," + csv(province.getName())
+                            + "," + csv(province.getRegionName()) + "\n");
+                } else {
+                    writer.write(objectMapper.writeValueAsString(province) + "\n");
+                }
+                flushIfNeeded(writer, ++count);
+            }
+        }
+        writer.flush();
+        logger.info("Exportadas {} provincias en formato {}", count, format);
+    }
+
+    /**
+     * Exporta los usuarios sin datos sensibles (nunca el hash de la contraseña).
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportUsers(Format format, Writer writer) throws IOException {
+        if (format == Format.CSV) {
+            writer.write("id,email,active,accountNonLocked,emailVerified,mustChangePassword,lastPasswordChange,passwordExpiresAt\n");
+        }
+        long count = 0;
+        try (Stream<UserExportDTO> rows = userRepository.streamAllAsDTO()) {
+            Iterator<UserExportDTO> it = rows.iterator();
+            while (it.hasNext()) {
+                UserExportDTO user = it.next();
+                if (format == Format.CSV) {
+                    writer.write(user.getId() + "," + csv(user.getEmail()) + "," + user.isActive() + ","
+                            + user.isAccountNonLocked() + "," + user.isEmailVerified() + ","
+                            + user.isMustChangePassword() + "," + nullToEmpty(user.getLastPasswordChange()) + ","
+                            + nullToEmpty(user.getPasswordExpiresAt()) + "\n");
+                } else {
+                    writer.write(objectMapper.writeValueAsString(user) + "\n");
+                }
+                flushIfNeeded(writer, ++count);
+            }
+        }
+        writer.flush();
+        logger.info("Exportados {} usuarios en formato {}", count, format);
+    }
+
+    private void flushIfNeeded(Writer writer, long count) throws IOException {
+        if (count % FLUSH_EVERY == 0) {
+            writer.flush();
+        }
+    }
+
+    private String nullToEmpty(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    /** Escapa un valor CSV: entre comillas si contiene coma, comillas o saltos de línea. */
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
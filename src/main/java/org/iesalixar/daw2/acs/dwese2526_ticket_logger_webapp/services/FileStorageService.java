@@ -1,55 +1,158 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
 
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.StoredFileDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.UserProfileRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.UUID;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
+/**
+ * Almacenamiento de ficheros subidos en {@code <app.upload-root>/uploads}, direccionado por
+ * contenido.
+ * <p>
+ * La subida se copia en streaming (canales NIO con un buffer fijo) a un temporal del mismo
+ * directorio, calculando tamaño y SHA-256 por el camino, y se guarda como
+ * {@code <sha256>.<ext>} con un único {@code move} atómico: nunca se carga el fichero entero en
+ * memoria y nunca queda visible un fichero a medio escribir. Si ese contenido ya existe, el
+ * temporal se descarta y se reutiliza el fichero: cada contenido se guarda una sola vez y su
+ * URL solo cambia cuando cambia el contenido.
+ * </p>
+ * <p>
+ * Los ficheros se comparten, así que no se borran sin más: {@link #release(String)} solo borra
+ * si ningún {@code user_profiles.profile_image} lo referencia.
+ * </p>
+ */
 @Service
 public class FileStorageService {
     private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
 
+    /** Tamaño del buffer de copia. */
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Un fichero guardado o reutilizado hace menos de esto no se libera: puede pertenecer a una
+     * subida cuya transacción aún no ha confirmado (y por tanto aún no cuenta como referencia).
+     */
+    private static final Duration RELEASE_GRACE = Duration.ofMinutes(5);
+
+    /** Extensiones conservadas en el nombre (sirven para el Content-Type al servirlo). */
+    private static final Pattern SAFE_EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+
+    /** Cerrojos por nombre de fichero (repartidos en franjas). */
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private AvatarThumbnailService avatarThumbnailService;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
     @Value("${app.upload-root}")
     private String uploadRootPath;
     private static final String UPLOADS_SUBDIR = "uploads";
 
     public String saveFile(MultipartFile file) {
+        StoredFileDTO stored = store(file);
+        return stored != null ? stored.getWebPath() : null;
+    }
+
+    /**
+     * Guarda la subida en streaming (o reutiliza el fichero con el mismo contenido) y devuelve
+     * su ruta web, tamaño y hash.
+     *
+     * @param file fichero subido.
+     * @return datos del fichero guardado, o {@code null} si está vacío o no pudo guardarse.
+     */
+    public StoredFileDTO store(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             logger.warn("Intento de guardar un archivo nulo o vacio.");
             return null;
         }
+        Path tempFile = null;
         try {
-            //Nombre original y extension
-            String originalFilename = file.getOriginalFilename();
-            String fileExtension = getFileExtension(originalFilename);
-            // Generar un nombre unico
-            String uniqueFileName = UUID.randomUUID().toString();
-            if (!fileExtension.isBlank()) {
-                uniqueFileName += "." + fileExtension;
+            //Extension del nombre original (normalizada)
+            String fileExtension = getFileExtension(file.getOriginalFilename()).toLowerCase(Locale.ROOT);
+            if (!SAFE_EXTENSION.matcher(fileExtension).matches()) {
+                fileExtension = "";
             }
             //Directorio basae de uploads: <uploadRootPath>/uploads/
-            Path uploadsDir = Paths.get(uploadRootPath).resolve(UPLOADS_SUBDIR);
+            Path uploadsDir = uploadsDir();
             //Crear directorios si no existen
             Files.createDirectories(uploadsDir);
+
+            // Temporal en el mismo directorio para que el move final sea atómico
+            tempFile = Files.createTempFile(uploadsDir, ".upload-", ".tmp");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size = copy(file, tempFile, digest);
+
+            // El nombre es el hash del contenido
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            String fileName = fileExtension.isBlank() ? sha256 : sha256 + "." + fileExtension;
+
             //Ruta completa del archivo
-            Path filePath = uploadsDir.resolve(uniqueFileName);
-            //Guardar bytes
-            Files.write(filePath, file.getBytes());
-            logger.info("Archivo {} guardado con exito en {}", uniqueFileName, filePath);
+            Path filePath = uploadsDir.resolve(fileName);
+            // Reutilizar y liberar el mismo nombre no pueden intercalarse
+            synchronized (lockFor(fileName)) {
+                if (Files.exists(filePath)) {
+                    // Mismo contenido ya guardado: se reutiliza y se marca como recién usado
+                    Files.setLastModifiedTime(filePath, FileTime.from(Instant.now()));
+                    logger.info("Archivo {} ya existente, se reutiliza ({} bytes)", fileName, size);
+                } else {
+                    moveIntoPlace(tempFile, filePath);
+                    tempFile = null;
+                    logger.info("Archivo {} guardado con exito en {} ({} bytes)", fileName, filePath, size);
+                }
+            }
             //Devolvemos la ruta web que usara la vista: /uploads/<nombre>
-            return "/uploads/" + uniqueFileName;
+            return new StoredFileDTO("/uploads/" + fileName, size, sha256);
         }
         catch (IOException e) {
             logger.error("Error al guardar el archivo: {}", e.getMessage(), e);
             return null;
         }
+        catch (NoSuchAlgorithmException e) {
+            // SHA-256 es obligatorio en toda JVM
+            throw new IllegalStateException(e);
+        }
+        finally {
+            if (tempFile != null) {
+                deleteQuietly(tempFile);
+            }
+        }
     }
 
     public void deleteFile(String filePathOrWebPath){
@@ -60,16 +163,141 @@ public class FileStorageService {
         try {
             //Si viene como /uploads/xxx, lo normalizamos al nombre del fichero
             String fileName = normalizeFileName(filePathOrWebPath);
-            Path uploadsDir = Paths.get(uploadRootPath).resolve(UPLOADS_SUBDIR);
-            Path filePath = uploadsDir.resolve(fileName);
+            Path filePath = uploadsDir().resolve(fileName);
 
             Files.deleteIfExists(filePath);
-            logger.info("Archivo {} eliminado con exito ({})");
+            logger.info("Archivo {} eliminado con exito ({})", fileName, filePath);
         } catch (IOException e) {
             logger.error("Error al elminar el archivo {}: {}", filePathOrWebPath, e.getMessage(), e);
         }
     }
 
+    /**
+     * Libera una referencia a un fichero: lo borra si ya no lo usa ningún perfil y no se ha
+     * guardado ni reutilizado recientemente.
+     *
+     * @param filePathOrWebPath ruta web o nombre del fichero.
+     * @return {@code true} si se ha borrado.
+     */
+    public boolean release(String filePathOrWebPath) {
+        if (filePathOrWebPath == null || filePathOrWebPath.isBlank()) {
+            return false;
+        }
+        String fileName = normalizeFileName(filePathOrWebPath);
+        if (userProfileRepository.countByProfileImage("/uploads/" + fileName) > 0) {
+            logger.debug("Archivo {} aún referenciado, se conserva", fileName);
+            return false;
+        }
+        Path filePath = uploadsDir().resolve(fileName);
+        synchronized (lockFor(fileName)) {
+            try {
+                if (Files.exists(filePath)
+                        && Files.getLastModifiedTime(filePath).toInstant().isAfter(Instant.now().minus(RELEASE_GRACE))) {
+                    logger.debug("Archivo {} usado recientemente, se conserva", fileName);
+                    return false;
+                }
+            } catch (IOException e) {
+                logger.warn("No se pudo comprobar el archivo {}: {}", fileName, e.getMessage());
+                return false;
+            }
+            deleteFile(fileName);
+            avatarThumbnailService.deleteRenditions(fileName);
+            return true;
+        }
+    }
+
+    /**
+     * Retira un fichero huérfano (lo borra o lo mueve a cuarentena) si no se ha guardado ni
+     * reutilizado después de {@code cutoff}. La comprobación y el borrado se hacen bajo el mismo
+     * cerrojo que {@link #store(MultipartFile)}, así que una subida que reutiliza el fichero en
+     * ese momento lo conserva.
+     *
+     * @param fileName      nombre del fichero dentro de {@code uploads}.
+     * @param cutoff        solo se retira si su última modificación es anterior.
+     * @param quarantineDir directorio de cuarentena, o {@code null} para borrar.
+     * @return bytes liberados, o {@code -1} si no se ha retirado.
+     */
+    public long reclaim(String fileName, Instant cutoff, Path quarantineDir) {
+        Path filePath = uploadsDir().resolve(normalizeFileName(fileName));
+        synchronized (lockFor(fileName)) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+                if (!attributes.isRegularFile() || !attributes.lastModifiedTime().toInstant().isBefore(cutoff)) {
+                    return -1;
+                }
+                if (quarantineDir != null) {
+                    Files.createDirectories(quarantineDir);
+                    Files.move(filePath, quarantineDir.resolve(filePath.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    Files.delete(filePath);
+                }
+                return attributes.size();
+            } catch (NoSuchFileException e) {
+                return -1;
+            } catch (IOException e) {
+                logger.warn("No se pudo retirar el archivo {}: {}", fileName, e.getMessage());
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Libera el fichero cuando la transacción actual confirme (o ya, si no hay transacción).
+     * Si la transacción se deshace no se toca, porque la BD sigue apuntando a él.
+     *
+     * @param filePathOrWebPath ruta web o nombre del fichero.
+     */
+    public void releaseAfterCommit(String filePathOrWebPath) {
+        AfterCommit.run(() -> release(filePathOrWebPath));
+    }
+
+    /**
+     * Copia el contenido de la subida al fichero destino con un buffer fijo, actualizando
+     * el hash con cada bloque.
+     */
+    private long copy(MultipartFile file, Path target, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        long size = 0;
+        try (InputStream in = file.getInputStream();
+             ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    size += out.write(buffer);
+                }
+                buffer.clear();
+            }
+            out.force(false);
+        }
+        return size;
+    }
+
+    private void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar el temporal {}: {}", path, e.getMessage());
+        }
+    }
+
+    private Object lockFor(String fileName) {
+        return locks[Math.floorMod(fileName.hashCode(), LOCK_STRIPES)];
+    }
+
+    private Path uploadsDir() {
+        return Paths.get(uploadRootPath).resolve(UPLOADS_SUBDIR);
+    }
+
     private String getFileExtension(String fileName) {
         if (fileName != null) {
             int lastDot = fileName.lastIndexOf('.');
@@ -0,0 +1,28 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+/**
+ * Protección contra fuerza bruta en el login.
+ * <p>
+ * Cuenta los fallos por cuenta (email) y por IP en una ventana deslizante en memoria, de modo
+ * que un intento bloqueado se rechaza sin consultar la base de datos ni calcular BCrypt.
+ * El bloqueo caduca con la ventana; solo el contador de fallos se vuelca a {@code users}, en
+ * segundo plano y en lote.
+ * </p>
+ */
+public interface LoginThrottleService {
+
+    /** Indica si la cuenta o la IP han superado su límite de fallos dentro de la ventana. */
+    boolean isThrottled(String email, String ip);
+
+    /** Registra un login fallido (credenciales incorrectas). */
+    void loginFailed(String email, String ip);
+
+    /** Registra un login correcto: la cuenta vuelve a cero fallos. */
+    void loginSucceeded(String email);
+
+    /** Olvida los fallos en memoria de la cuenta (desbloqueo por un administrador o restablecimiento). */
+    void resetAccount(String email);
+
+    /** Vuelca a {@code users} los contadores de fallos pendientes. */
+    void flush();
+}
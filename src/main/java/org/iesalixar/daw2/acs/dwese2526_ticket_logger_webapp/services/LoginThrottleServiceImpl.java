@@ -0,0 +1,262 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementación en memoria del control de intentos de login.
+ * <p>
+ * Las ventanas de fallos se reparten en {@link #STRIPES} franjas, cada una con su propio
+ * cerrojo, para que logins concurrentes de cuentas distintas no compitan por el mismo
+ * monitor. Cada ventana guarda las marcas de tiempo de los últimos fallos (como mucho el
+ * límite), así que tanto la comprobación como el registro cuestan microsegundos.
+ * </p>
+ * <p>
+ * Solo se programan escrituras para cuentas que existen (las que están en la cache de login)
+ * y cuyo estado cambia: un login correcto sin fallos previos no escribe nada. Las escrituras
+ * pendientes se agrupan por email y se vuelcan con un único {@code batchUpdate} periódico.
+ * </p>
+ * <p>
+ * Al alcanzar el límite la cuenta se rechaza solo mientras los fallos sigan dentro de la
+ * ventana: el bloqueo caduca solo y nunca se escribe en {@code account_non_locked}. Si no,
+ * cualquiera que conozca un email (también el de un administrador) podría dejar la cuenta
+ * bloqueada indefinidamente con unas pocas contraseñas incorrectas.
+ * </p>
+ */
+@Service
+public class LoginThrottleServiceImpl implements LoginThrottleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginThrottleServiceImpl.class);
+
+    private static final int STRIPES = 64;
+
+    private static final String FLUSH_SQL = "UPDATE users SET failed_login_attempts = ? WHERE email = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserDetailsCacheService userDetailsCacheService;
+
+    @Value("${app.security.login-throttle.max-failures-per-account:5}")
+    private int maxFailuresPerAccount;
+
+    @Value("${app.security.login-throttle.max-failures-per-ip:20}")
+    private int maxFailuresPerIp;
+
+    @Value("${app.security.login-throttle.window:15m}")
+    private Duration window;
+
+    @Value("${app.security.login-throttle.max-tracked-keys:100000}")
+    private int maxTrackedKeys;
+
+    /**
+     * Franja de ventanas protegida por su propio cerrojo (el propio objeto). El mapa va en
+     * orden de acceso: la primera entrada es la que lleva más tiempo sin consultarse.
+     */
+    private static final class Stripe {
+        private final Map<String, ArrayDeque<Long>> failures = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+
+    private final Stripe[] accountStripes = newStripes();
+    private final Stripe[] ipStripes = newStripes();
+    /** Fallos pendientes de escribir por cuenta. */
+    private final Map<String, Integer> pending = new ConcurrentHashMap<>();
+
+    private static Stripe[] newStripes() {
+        Stripe[] stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        return stripes;
+    }
+
+    @Override
+    public boolean isThrottled(String email, String ip) {
+        long now = System.nanoTime();
+        return (ip != null && count(ipStripes, ip, now) >= maxFailuresPerIp)
+                || (email != null && count(accountStripes, normalize(email), now) >= maxFailuresPerAccount);
+    }
+
+    @Override
+    public void loginFailed(String email, String ip) {
+        long now = System.nanoTime();
+        if (ip != null) {
+            record(ipStripes, ip, now, maxFailuresPerIp);
+        }
+        if (email == null) {
+            return;
+        }
+        String key = normalize(email);
+        int failures = record(accountStripes, key, now, maxFailuresPerAccount);
+        // Emails inexistentes (relleno de credenciales) no generan escrituras
+        if (userDetailsCacheService.getIfPresent(key) != null) {
+            pending.put(key, failures);
+        }
+        if (failures >= maxFailuresPerAccount) {
+            logger.warn("Cuenta {} bloqueada temporalmente ({}) tras {} intentos fallidos", key, window, failures);
+        }
+    }
+
+    @Override
+    public void loginSucceeded(String email) {
+        if (email == null) {
+            return;
+        }
+        String key = normalize(email);
+        if (clear(accountStripes, key)) {
+            pending.put(key, 0);
+        }
+    }
+
+    @Override
+    public void resetAccount(String email) {
+        if (email == null) {
+            return;
+        }
+        String key = normalize(email);
+        clear(accountStripes, key);
+        pending.remove(key);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.security.login-throttle.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            purgeExpired();
+            return;
+        }
+        List<Map.Entry<String, Integer>> batch = new ArrayList<>();
+        for (Iterator<Map.Entry<String, Integer>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Integer> entry = it.next();
+            it.remove();
+            batch.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch, batch.size(), (ps, entry) -> {
+                ps.setInt(1, entry.getValue());
+                ps.setString(2, entry.getKey());
+            });
+        } catch (DataAccessException e) {
+            // Se reintenta en el siguiente volcado salvo que ya haya un estado más reciente
+            logger.error("Error volcando {} contadores de login: {}", batch.size(), e.getMessage());
+            batch.forEach(entry -> pending.putIfAbsent(entry.getKey(), entry.getValue()));
+            return;
+        }
+        logger.debug("Volcados {} contadores de login", batch.size());
+        purgeExpired();
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private int count(Stripe[] stripes, String key, long now) {
+        Stripe stripe = stripeFor(stripes, key);
+        synchronized (stripe) {
+            ArrayDeque<Long> failures = stripe.failures.get(key);
+            if (failures == null) {
+                return 0;
+            }
+            trim(failures, now);
+            if (failures.isEmpty()) {
+                stripe.failures.remove(key);
+            }
+            return failures.size();
+        }
+    }
+
+    private int record(Stripe[] stripes, String key, long now, int limit) {
+        Stripe stripe = stripeFor(stripes, key);
+        synchronized (stripe) {
+            ArrayDeque<Long> failures = stripe.failures.get(key);
+            if (failures == null) {
+                makeRoom(stripe, now);
+                failures = new ArrayDeque<>(limit);
+                stripe.failures.put(key, failures);
+            }
+            trim(failures, now);
+            failures.addLast(now);
+            // Basta con recordar los últimos "limit" fallos
+            while (failures.size() > limit) {
+                failures.removeFirst();
+            }
+            return failures.size();
+        }
+    }
+
+    private boolean clear(Stripe[] stripes, String key) {
+        Stripe stripe = stripeFor(stripes, key);
+        synchronized (stripe) {
+            return stripe.failures.remove(key) != null;
+        }
+    }
+
+    /**
+     * Mantiene acotada la memoria: primero descarta ventanas caducadas y, si no basta, la que
+     * lleva más tiempo sin usarse.
+     */
+    private void makeRoom(Stripe stripe, long now) {
+        int perStripe = Math.max(1, maxTrackedKeys / STRIPES);
+        if (stripe.failures.size() < perStripe) {
+            return;
+        }
+        stripe.failures.values().removeIf(failures -> {
+            trim(failures, now);
+            return failures.isEmpty();
+        });
+        if (stripe.failures.size() >= perStripe) {
+            Iterator<ArrayDeque<Long>> it = stripe.failures.values().iterator();
+            it.next();
+            it.remove();
+        }
+    }
+
+    private void purgeExpired() {
+        long now = System.nanoTime();
+        for (Stripe[] stripes : List.of(accountStripes, ipStripes)) {
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.failures.values().removeIf(failures -> {
+                        trim(failures, now);
+                        return failures.isEmpty();
+                    });
+                }
+            }
+        }
+    }
+
+    private void trim(ArrayDeque<Long> failures, long now) {
+        long oldest = now - window.toNanos();
+        while (!failures.isEmpty() && failures.peekFirst() - oldest < 0) {
+            failures.removeFirst();
+        }
+    }
+
+    private Stripe stripeFor(Stripe[] stripes, String key) {
+        return stripes[Math.floorMod(key.hashCode(), STRIPES)];
+    }
+
+    private String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
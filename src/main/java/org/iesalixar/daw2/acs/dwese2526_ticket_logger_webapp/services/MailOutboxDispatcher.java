@@ -0,0 +1,26 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+/**
+ * Entrega en segundo plano de los correos encolados en {@code mail_outbox}.
+ * <p>
+ * Reserva los mensajes listos por lotes, los envía por SMTP reutilizando una sola conexión
+ * por lote y reprograma los fallidos con espera exponencial; al agotar los reintentos el
+ * mensaje queda como {@code DEAD} para revisarlo a mano.
+ * </p>
+ */
+public interface MailOutboxDispatcher {
+
+    /**
+     * Reserva y envía un lote de mensajes.
+     *
+     * @return número de mensajes reservados (0 si no había nada pendiente).
+     */
+    int dispatchBatch();
+
+    /**
+     * Borra los mensajes ya enviados más antiguos que el periodo de retención.
+     *
+     * @return número de mensajes borrados.
+     */
+    int purgeSent();
+}
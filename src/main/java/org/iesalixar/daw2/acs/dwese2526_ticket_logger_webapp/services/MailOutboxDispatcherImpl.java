@@ -0,0 +1,232 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.MailOutboxMessage;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.MailOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Dispatcher de la bandeja de salida de correo.
+ * <p>
+ * Cada ciclo reserva un lote con un único {@code UPDATE} (sin transacciones abiertas durante
+ * el envío), entrega todos sus mensajes por la misma conexión SMTP
+ * ({@link JavaMailSender#send(MimeMessage...)}) y registra el resultado de cada uno.
+ * Un fallo se reintenta tras {@code initialBackoff * 2^(intentos-1)} (con tope
+ * {@code maxBackoff}); al llegar a {@code maxAttempts} el mensaje pasa a {@code DEAD}.
+ * Los totales se publican en Actuator como {@code mail.outbox.*}.
+ * </p>
+ */
+@Service
+public class MailOutboxDispatcherImpl implements MailOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailOutboxDispatcherImpl.class);
+
+    /** Longitud máxima del error guardado (columna {@code last_error}). */
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Remitente por defecto (application.properties).
+     * <p>Con Gmail suele coincidir con {@code spring.mail.username}.</p>
+     */
+    @Value("${spring.mail.from:}")
+    private String defaultFrom;
+
+    @Value("${app.mail.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.initial-backoff:30s}")
+    private Duration initialBackoff;
+
+    @Value("${app.mail.outbox.max-backoff:1h}")
+    private Duration maxBackoff;
+
+    @Value("${app.mail.outbox.claim-timeout:5m}")
+    private Duration claimTimeout;
+
+    @Value("${app.mail.outbox.sent-retention:7d}")
+    private Duration sentRetention;
+
+    private Counter sentCounter;
+    private Counter retriedCounter;
+    private Counter deadCounter;
+
+    @PostConstruct
+    void init() {
+        sentCounter = Counter.builder("mail.outbox.sent")
+                .description("Correos entregados al servidor SMTP")
+                .register(meterRegistry);
+        retriedCounter = Counter.builder("mail.outbox.retried")
+                .description("Envíos fallidos reprogramados")
+                .register(meterRegistry);
+        deadCounter = Counter.builder("mail.outbox.dead")
+                .description("Correos descartados tras agotar los reintentos")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ciclo periódico: vacía la cola lote a lote mientras lleguen lotes completos.
+     */
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        try {
+            // Un lote completo indica que probablemente queda más trabajo pendiente
+            int claimed;
+            do {
+                claimed = dispatchBatch();
+            } while (claimed == batchSize);
+        } catch (RuntimeException e) {
+            // Una caída de la BD no debe parar el planificador; se reintenta en el siguiente ciclo
+            logger.error("Error procesando mail_outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        String token = UUID.randomUUID().toString();
+        int claimed = mailOutboxRepository.claimDue(token, now, now.plus(claimTimeout), batchSize);
+        if (claimed == 0) {
+            return 0;
+        }
+
+        List<MailOutboxMessage> batch = mailOutboxRepository.findByClaimTokenOrderById(token);
+        // Listas paralelas: se envía y se marca en el orden en que se reservaron (por id)
+        List<MimeMessage> mimes = new ArrayList<>(batch.size());
+        List<MailOutboxMessage> sources = new ArrayList<>(batch.size());
+        for (MailOutboxMessage message : batch) {
+            try {
+                MimeMessage mime = toMime(message);
+                mimes.add(mime);
+                sources.add(message);
+            } catch (MessagingException e) {
+                // Dirección o contenido inválidos: reintentar no lo arreglará
+                deadLetter(message, message.getAttempts() + 1, e, now);
+            }
+        }
+        if (mimes.isEmpty()) {
+            return claimed;
+        }
+
+        Map<Object, Exception> failures;
+        try {
+            mailSender.send(mimes.toArray(new MimeMessage[0]));
+            failures = Map.of();
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages().isEmpty() ? allFailed(mimes, e) : e.getFailedMessages();
+        } catch (MailException e) {
+            // Autenticación o configuración: falla el lote entero
+            failures = allFailed(mimes, e);
+        }
+
+        List<Long> sentIds = new ArrayList<>();
+        for (int i = 0; i < mimes.size(); i++) {
+            Exception failure = failures.get(mimes.get(i));
+            if (failure == null) {
+                sentIds.add(sources.get(i).getId());
+            } else {
+                retryOrDeadLetter(sources.get(i), failure, now);
+            }
+        }
+        if (!sentIds.isEmpty()) {
+            mailOutboxRepository.markSent(sentIds, LocalDateTime.now());
+            sentCounter.increment(sentIds.size());
+        }
+        logger.info("Lote de mail_outbox: {} reservados, {} enviados, {} fallidos",
+                claimed, sentIds.size(), mimes.size() - sentIds.size());
+        return claimed;
+    }
+
+    @Override
+    @Scheduled(cron = "${app.mail.outbox.purge-cron:0 30 3 * * *}")
+    public int purgeSent() {
+        int deleted = mailOutboxRepository.deleteByStatusAndSentAtBefore(
+                MailOutboxMessage.Status.SENT, LocalDateTime.now().minus(sentRetention));
+        logger.info("Purgados {} correos enviados de mail_outbox", deleted);
+        return deleted;
+    }
+
+    private MimeMessage toMime(MailOutboxMessage message) throws MessagingException {
+        MimeMessage mime = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mime, StandardCharsets.UTF_8.name());
+        if (defaultFrom != null && !defaultFrom.isBlank()) {
+            helper.setFrom(defaultFrom);
+        }
+        helper.setTo(message.getRecipient());
+        helper.setSubject(message.getSubject());
+        helper.setText(message.getBody(), message.isHtml());
+        return mime;
+    }
+
+    private Map<Object, Exception> allFailed(List<MimeMessage> mimes, Exception e) {
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        mimes.forEach(mime -> failures.put(mime, e));
+        return failures;
+    }
+
+    private void retryOrDeadLetter(MailOutboxMessage message, Exception e, LocalDateTime now) {
+        int attempts = message.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            deadLetter(message, attempts, e, now);
+            return;
+        }
+        LocalDateTime next = now.plus(backoff(attempts));
+        mailOutboxRepository.markFailed(message.getId(), MailOutboxMessage.Status.PENDING, attempts, next,
+                describe(e));
+        retriedCounter.increment();
+        logger.warn("Envío fallido del correo {} (intento {}/{}), reintento a las {}: {}",
+                message.getId(), attempts, maxAttempts, next, e.getMessage());
+    }
+
+    private void deadLetter(MailOutboxMessage message, int attempts, Exception e, LocalDateTime now) {
+        mailOutboxRepository.markFailed(message.getId(), MailOutboxMessage.Status.DEAD, attempts, now,
+                describe(e));
+        deadCounter.increment();
+        logger.error("Correo {} descartado tras {} intentos: {}", message.getId(), attempts, e.getMessage());
+    }
+
+    /** Espera exponencial: initialBackoff, x2, x4... con tope en maxBackoff. */
+    Duration backoff(int attempts) {
+        int shift = Math.min(attempts - 1, 30);
+        Duration delay = initialBackoff.multipliedBy(1L << shift);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private String describe(Exception e) {
+        String text = e.getClass().getSimpleName() + ": " + e.getMessage();
+        return text.length() > MAX_ERROR_LENGTH ? text.substring(0, MAX_ERROR_LENGTH) : text;
+    }
+}
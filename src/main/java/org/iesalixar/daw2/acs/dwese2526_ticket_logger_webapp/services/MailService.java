@@ -3,6 +3,14 @@ package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
 import java.util.Locale;
 import java.util.Map;
 
+/**
+ * Envío de correos de la aplicación.
+ * <p>
+ * Los métodos no hablan con el servidor SMTP: encolan el mensaje en {@code mail_outbox} dentro
+ * de la transacción del llamante y {@link MailOutboxDispatcher} lo entrega en segundo plano.
+ * Si la transacción se deshace, el correo no llega a enviarse.
+ * </p>
+ */
 public interface MailService {
     void sendText(String to, String subject, String text);
     void sendHtml(String to, String subject, String html);
@@ -12,4 +20,3 @@ public interface MailService {
                       Map<String, Object> variables,
                       Locale locale);
 }
-
@@ -1,17 +1,15 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RenderedMailDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.MailOutboxMessage;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.MailOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.MessageSource;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.context.Context;
-import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.Locale;
 import java.util.Map;
 
@@ -19,35 +17,31 @@ import java.util.Map;
  * Servicio genérico de envío de correos de la aplicación.
  * <p>
  * Permite enviar emails en texto plano, HTML o basados en plantillas Thymeleaf.
- * Soporta internacionalización (i18n) mediante {@link MessageSource} para el asunto
- * y usa SMTP a través de {@link JavaMailSender}.
+ * Soporta internacionalización (i18n) del asunto; las plantillas se renderizan con
+ * {@link MailTemplateRenderer}, que las mantiene compiladas.
+ * </p>
+ * <p>
+ * El asunto y el cuerpo se resuelven al encolar (con el locale del usuario) y el mensaje se
+ * inserta en {@code mail_outbox} en la transacción del llamante: una petición nunca espera
+ * al servidor SMTP y un fallo de SMTP no deshace la operación. La entrega la hace
+ * {@link MailOutboxDispatcherImpl}.
  * </p>
  */
 @Service
 public class MailServiceImpl implements MailService {
 
 
-    /** Cliente SMTP de Spring (crea y envía mensajes Mime). */
-    @Autowired
-    private JavaMailSender mailSender;
+    private static final Logger logger = LoggerFactory.getLogger(MailServiceImpl.class);
 
 
-    /** Fuente de mensajes para i18n (asuntos y textos por claves). */
+    /** Bandeja de salida donde se encolan los mensajes. */
     @Autowired
-    private MessageSource messageSource;
+    private MailOutboxRepository mailOutboxRepository;
 
 
-    /** Motor de plantillas Thymeleaf para renderizar HTML desde templates. */
+    /** Renderizado de plantillas de correo con asuntos y plantillas cacheados. */
     @Autowired
-    private SpringTemplateEngine templateEngine;
-
-
-    /**
-     * Remitente por defecto (application.properties).
-     * <p>Con Gmail suele coincidir con {@code spring.mail.username}.</p>
-     */
-    @Value("${spring.mail.from:}")
-    private String defaultFrom;
+    private MailTemplateRenderer mailTemplateRenderer;
 
 
     /**
@@ -58,6 +52,7 @@ public class MailServiceImpl implements MailService {
      * @param text cuerpo en texto plano
      */
     @Override
+    @Transactional
     public void sendText(String to, String subject, String text) {
         send(to, subject, text, false);
     }
@@ -71,6 +66,7 @@ public class MailServiceImpl implements MailService {
      * @param html cuerpo en HTML
      */
     @Override
+    @Transactional
     public void sendHtml(String to, String subject, String html) {
         send(to, subject, html, true);
     }
@@ -91,6 +87,7 @@ public class MailServiceImpl implements MailService {
      * @param locale locale del usuario
      */
     @Override
+    @Transactional
     public void sendTemplate(String to,
                              String subjectKey,
                              String templateName,
@@ -98,48 +95,33 @@ public class MailServiceImpl implements MailService {
                              Locale locale) {
 
 
-        String subject = messageSource.getMessage(subjectKey, null, locale);
-
-        Context ctx = new Context(locale);
-        ctx.setVariables(variables);
-        ctx.setVariable("subject", subject);
-        ctx.setVariable("lang", locale.getLanguage());
-
-        String html = templateEngine.process(templateName, ctx);
-        send(to, subject, html, true);
+        RenderedMailDTO rendered = mailTemplateRenderer.render(subjectKey, templateName, variables, locale);
+        send(to, rendered.getSubject(), rendered.getBody(), true);
     }
 
 
     /**
-     * Envía un {@link MimeMessage} con cuerpo en texto plano o HTML.
+     * Encola el mensaje en {@code mail_outbox} para su entrega en segundo plano.
      *
      * @param to destinatario
      * @param subject asunto
      * @param body cuerpo del mensaje
      * @param isHtml {@code true} si el cuerpo es HTML; {@code false} si es texto plano
-     * @throws IllegalStateException si falla la construcción o el envío por SMTP
      */
     private void send(String to, String subject, String body, boolean isHtml) {
-        try {
-            MimeMessage msg = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(msg, StandardCharsets.UTF_8.name());
-
-
-            if (defaultFrom != null && !defaultFrom.isBlank()) {
-                helper.setFrom(defaultFrom);
-            }
-
-
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(body, isHtml);
-
-
-            mailSender.send(msg);
-
-
-        } catch (MessagingException e) {
-            throw new IllegalStateException("Email could not be sent.", e);
-        }
+        LocalDateTime now = LocalDateTime.now();
+
+        MailOutboxMessage message = new MailOutboxMessage();
+        message.setRecipient(to);
+        message.setSubject(subject);
+        message.setBody(body);
+        message.setHtml(isHtml);
+        message.setStatus(MailOutboxMessage.Status.PENDING);
+        message.setAttempts(0);
+        message.setNextAttemptAt(now);
+        message.setCreatedAt(now);
+
+        mailOutboxRepository.save(message);
+        logger.debug("Correo encolado en mail_outbox (id={})", message.getId());
     }
 }
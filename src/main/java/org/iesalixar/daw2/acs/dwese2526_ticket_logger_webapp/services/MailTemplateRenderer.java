@@ -0,0 +1,28 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RenderedMailDTO;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renderizado de las plantillas de correo ({@code templates/mail/*}).
+ * <p>
+ * Mantiene compiladas las plantillas y cacheados los asuntos por {@code (clave, locale)}, de
+ * modo que un envío masivo no vuelve a parsear la plantilla ni a resolver el asunto por cada
+ * destinatario.
+ * </p>
+ */
+public interface MailTemplateRenderer {
+
+    /**
+     * Renderiza un correo.
+     *
+     * @param subjectKey   clave i18n del asunto.
+     * @param templateName plantilla (p.ej. {@code "mail/password-reset"}).
+     * @param variables    variables de la plantilla.
+     * @param locale       locale del destinatario.
+     * @return asunto y cuerpo HTML.
+     */
+    RenderedMailDTO render(String subjectKey, String templateName, Map<String, Object> variables, Locale locale);
+}
@@ -0,0 +1,115 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RenderedMailDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementación del renderizado de correos con un motor Thymeleaf propio.
+ * <p>
+ * El motor de las vistas web no sirve aquí: DevTools desactiva su cache de plantillas y cada
+ * correo se volvería a parsear. Este motor tiene su propio resolver con la cache siempre activa
+ * (las plantillas compiladas no dependen del locale; los textos {@code #{...}} se resuelven al
+ * renderizar contra el {@link MessageSource}) y compila las expresiones SpEL. No se publica
+ * como bean para no desplazar al {@code SpringTemplateEngine} autoconfigurado.
+ * </p>
+ * <p>
+ * Los asuntos se cachean por {@code (clave, locale)} y cada hilo reutiliza su buffer de salida.
+ * El tiempo de renderizado se publica como {@code mail.render{template=...}}.
+ * </p>
+ */
+@Service
+public class MailTemplateRendererImpl implements MailTemplateRenderer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailTemplateRendererImpl.class);
+
+    /** Tamaño inicial del buffer de salida de cada hilo. */
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /** Buffers que crezcan por encima de este tamaño no se conservan tras el renderizado. */
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+
+    @Autowired
+    private MessageSource messageSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** Permite desactivar la cache al editar plantillas de correo en local. */
+    @Value("${app.mail.templates.cacheable:true}")
+    private boolean cacheable;
+
+    private record SubjectKey(String key, Locale locale) {
+    }
+
+    private final Map<SubjectKey, String> subjects = new ConcurrentHashMap<>();
+    private final Map<String, Timer> renderTimers = new ConcurrentHashMap<>();
+    private final ThreadLocal<StringWriter> buffers = ThreadLocal.withInitial(() -> new StringWriter(BUFFER_SIZE));
+
+    private SpringTemplateEngine templateEngine;
+
+    @PostConstruct
+    void init() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resolver.setCacheable(cacheable);
+
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        templateEngine.setTemplateEngineMessageSource(messageSource);
+        templateEngine.setEnableSpringELCompiler(true);
+        logger.info("Motor de plantillas de correo configurado: cacheable={}", cacheable);
+    }
+
+    @Override
+    public RenderedMailDTO render(String subjectKey, String templateName, Map<String, Object> variables, Locale locale) {
+        String subject = subjects.computeIfAbsent(new SubjectKey(subjectKey, locale),
+                key -> messageSource.getMessage(key.key(), null, key.locale()));
+
+        Context ctx = new Context(locale, variables);
+        ctx.setVariable("subject", subject);
+        ctx.setVariable("lang", locale.getLanguage());
+
+        Timer timer = renderTimers.computeIfAbsent(templateName, name -> Timer.builder("mail.render")
+                .description("Tiempo de renderizado de las plantillas de correo")
+                .tag("template", name)
+                .register(meterRegistry));
+
+        String body = timer.record(() -> process(templateName, ctx));
+        return new RenderedMailDTO(subject, body);
+    }
+
+    private String process(String templateName, Context ctx) {
+        StringWriter writer = buffers.get();
+        try {
+            templateEngine.process(templateName, ctx, writer);
+            return writer.toString();
+        } finally {
+            if (writer.getBuffer().capacity() > MAX_RETAINED_BUFFER) {
+                buffers.remove();
+            } else {
+                writer.getBuffer().setLength(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+/**
+ * Limitador de peticiones de "Olvidé mi contraseña" por IP y por email (token bucket).
+ * <p>
+ * Se consulta antes de {@link PasswordResetService#requestPasswordReset}: una petición que
+ * supera el límite no llega a la base de datos ni genera correo, pero el controlador responde
+ * igual que siempre para no revelar nada (anti-enumeración).
+ * </p>
+ */
+public interface PasswordResetRateLimiter {
+
+    /**
+     * Consume un token del bucket de la IP y otro del bucket del email.
+     *
+     * @param ip    IP del cliente.
+     * @param email email introducido (se normaliza).
+     * @return {@code true} si la petición puede procesarse; {@code false} si excede algún límite.
+     */
+    boolean tryAcquire(String ip, String email);
+}
@@ -0,0 +1,133 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Implementación en memoria con un token bucket por IP y otro por email normalizado.
+ * <p>
+ * Cada bucket admite una ráfaga de {@code capacity} peticiones y recupera un token cada
+ * {@code refill}. Los buckets viven en caches Caffeine acotadas que los descartan cuando
+ * llevan sin usarse el tiempo de recarga completa (para entonces estarían llenos otra vez),
+ * así que la memoria no crece con IPs o emails inventados.
+ * </p>
+ * <p>
+ * Las decisiones se publican como {@code auth.forgot.requests{outcome=allowed|limited_ip|limited_email}}.
+ * </p>
+ */
+@Service
+public class PasswordResetRateLimiterImpl implements PasswordResetRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordResetRateLimiterImpl.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.security.forgot-password.ip-capacity:5}")
+    private int ipCapacity;
+
+    @Value("${app.security.forgot-password.ip-refill:1m}")
+    private Duration ipRefill;
+
+    @Value("${app.security.forgot-password.email-capacity:3}")
+    private int emailCapacity;
+
+    @Value("${app.security.forgot-password.email-refill:15m}")
+    private Duration emailRefill;
+
+    @Value("${app.security.forgot-password.max-tracked-keys:100000}")
+    private long maxTrackedKeys;
+
+    /** Bucket con recarga perezosa: los tokens se recalculan al consumir. */
+    private static final class TokenBucket {
+        private final int capacity;
+        private final long refillNanos;
+        private double tokens;
+        private long lastRefill;
+
+        private TokenBucket(int capacity, long refillNanos) {
+            this.capacity = capacity;
+            this.refillNanos = refillNanos;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        synchronized boolean tryConsume() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (double) (now - lastRefill) / refillNanos);
+            lastRefill = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+
+    private Cache<String, TokenBucket> ipBuckets;
+    private Cache<String, TokenBucket> emailBuckets;
+
+    private Counter allowed;
+    private Counter limitedByIp;
+    private Counter limitedByEmail;
+
+    @PostConstruct
+    void init() {
+        ipBuckets = newBucketCache(ipCapacity, ipRefill);
+        emailBuckets = newBucketCache(emailCapacity, emailRefill);
+        allowed = outcomeCounter("allowed");
+        limitedByIp = outcomeCounter("limited_ip");
+        limitedByEmail = outcomeCounter("limited_email");
+        logger.info("Límite de forgot-password: IP ráfaga {} (+1 cada {}), email ráfaga {} (+1 cada {})",
+                ipCapacity, ipRefill, emailCapacity, emailRefill);
+    }
+
+    @Override
+    public boolean tryAcquire(String ip, String email) {
+        if (ip != null && !bucket(ipBuckets, ip, ipCapacity, ipRefill).tryConsume()) {
+            limitedByIp.increment();
+            logger.debug("forgot-password limitado por IP ({})", ip);
+            return false;
+        }
+        if (email != null && !email.isBlank()) {
+            String key = email.trim().toLowerCase(Locale.ROOT);
+            if (!bucket(emailBuckets, key, emailCapacity, emailRefill).tryConsume()) {
+                limitedByEmail.increment();
+                logger.debug("forgot-password limitado por email");
+                return false;
+            }
+        }
+        allowed.increment();
+        return true;
+    }
+
+    private TokenBucket bucket(Cache<String, TokenBucket> buckets, String key, int capacity, Duration refill) {
+        return buckets.get(key, k -> new TokenBucket(capacity, refill.toNanos()));
+    }
+
+    private Cache<String, TokenBucket> newBucketCache(int capacity, Duration refill) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxTrackedKeys)
+                // Tras una recarga completa el bucket está lleno: equivale a no tenerlo
+                .expireAfterAccess(refill.multipliedBy(capacity))
+                .build();
+    }
+
+    private Counter outcomeCounter(String outcome) {
+        return Counter.builder("auth.forgot.requests")
+                .description("Peticiones de recuperación de contraseña según la decisión del limitador")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
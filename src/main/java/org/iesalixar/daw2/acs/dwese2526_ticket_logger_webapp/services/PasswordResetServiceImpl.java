@@ -64,6 +64,13 @@ public class PasswordResetServiceImpl implements PasswordResetService {
     private AppUrlService appUrlService;
 
 
+    @Autowired
+    private UserDetailsCacheService userDetailsCacheService;
+
+    @Autowired
+    private LoginThrottleService loginThrottleService;
+
+
     /**
      * Solicita un restablecimiento de contraseña para un email.
      * <p>
@@ -110,7 +117,8 @@ public class PasswordResetServiceImpl implements PasswordResetService {
             tokenRepository.save(prt);
 
 
-            // Construye URL pública y envía mail vía plantilla (genérico).
+            // Construye URL pública y encola el mail vía plantilla (genérico).
+            // Se inserta en mail_outbox en esta misma transacción: la petición no espera al SMTP.
             String resetUrl = appUrlService.buildResetUrl(rawToken);
 
 
@@ -172,6 +180,11 @@ public class PasswordResetServiceImpl implements PasswordResetService {
 
         userRepository.save(user);
         tokenRepository.save(token);
+
+        // El siguiente login debe ver la contraseña nueva
+        userDetailsCacheService.evictByEmail(user.getEmail());
+        // La cuenta queda desbloqueada: sin fallos pendientes en memoria
+        loginThrottleService.resetAccount(user.getEmail());
     }
 
 
@@ -1,23 +1,31 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
 
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.KeysetPageDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceCreateDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceDetailDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceUpdateDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionOptionDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ProvinceService {
     Page<ProvinceDTO> list(Pageable pageable);
+    Slice<ProvinceDTO> listSlice(Pageable pageable);
+    long approximateTotal();
+    KeysetPageDTO<ProvinceDTO> listKeyset(String cursor, int size);
     ProvinceUpdateDTO getForEdit(Long id);
     void create(ProvinceCreateDTO dto);
     void update(ProvinceUpdateDTO dto);
     void delete(Long id);
+    int deleteAll(Collection<Long> ids);
     ProvinceDetailDTO getDetail(Long id);
 
     List<ProvinceDTO> listAll();
 
-    Object listRegionsForSelect();
+    List<RegionOptionDTO> listRegionsForSelect();
 }
@@ -1,22 +1,39 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
 
 import jakarta.transaction.Transactional;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.config.CacheConfig;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.KeysetCursor;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.KeysetPageDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceCreateDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceDetailDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceUpdateDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionOptionDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Province;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Region;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.DuplicateResourceException;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.ResourceNotFoundException;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.mappers.ProvinceMapper;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.ProvinceRepository;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.RegionRepository;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.EntityCountService.CountedTable;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -28,9 +45,48 @@ public class ProvinceServiceImpl implements ProvinceService {
     @Autowired
     private RegionService regionService;
 
+    @Autowired
+    private RegionRepository regionRepository;
+
+    @Autowired
+    private ReferenceDataVersionService referenceDataVersionService;
+
+    @Autowired
+    private RegionOptionsService regionOptionsService;
+
+    @Autowired
+    private TypeaheadService typeaheadService;
+
+    @Autowired
+    private EntityCountService entityCountService;
+
     @Override
+    @Cacheable(CacheConfig.PROVINCES_PAGE)
     public Page<ProvinceDTO> list(Pageable pageable) {
-        return provinceRepository.findAll(pageable).map(ProvinceMapper::toDTO);
+        // Filas sin COUNT(*); el total exacto sale de la cache de totales
+        Slice<ProvinceDTO> slice = listSlice(pageable);
+        return new PageImpl<>(slice.getContent(), pageable, entityCountService.exactCount(CountedTable.PROVINCES));
+    }
+
+    @Override
+    public Slice<ProvinceDTO> listSlice(Pageable pageable) {
+        return provinceRepository.findSliceAsDTO(toEntitySort(pageable));
+    }
+
+    @Override
+    public long approximateTotal() {
+        return entityCountService.approximateCount(CountedTable.PROVINCES);
+    }
+
+    @Override
+    public KeysetPageDTO<ProvinceDTO> listKeyset(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        // Se lee una fila de mas para saber si hay pagina siguiente sin lanzar COUNT(*)
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<ProvinceDTO> rows = (after == null)
+                ? provinceRepository.findKeysetFirstPage(limit)
+                : provinceRepository.findKeysetPageAfter(after.getKey(), after.getId(), limit);
+        return KeysetPageDTO.of(rows, size, after == null, p -> new KeysetCursor(p.getName(), p.getId()));
     }
 
     @Override
@@ -41,39 +97,95 @@ public class ProvinceServiceImpl implements ProvinceService {
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.PROVINCES_PAGE, allEntries = true),
+            @CacheEvict(value = CacheConfig.PROVINCES_ALL, allEntries = true),
+            @CacheEvict(value = CacheConfig.REGION_DETAIL, allEntries = true)
+    })
     public void create(ProvinceCreateDTO dto) {
-        if (provinceRepository.existsByCode(dto.getCode())) {
-            throw new DuplicateResourceException("province", "code", dto.getCode());
+        // Sin consultas previas: el índice único de code y la FK a regions deciden
+        Region region = regionRepository.getReferenceById(dto.getRegionId());
+        Province province;
+        try {
+            province = provinceRepository.saveAndFlush(new Province(dto.getCode(), dto.getName(), region));
+        } catch (DataIntegrityViolationException e) {
+            throw translate(e, dto.getCode(), dto.getRegionId());
         }
-
-        Region region = regionService.findById(dto.getRegionId());
-        Province province = new Province(dto.getCode(), dto.getName(), region);
-        provinceRepository.save(province);
+        referenceDataVersionService.provincesChanged();
+        entityCountService.rowsChanged(CountedTable.PROVINCES);
+        typeaheadService.provinceSaved(province.getId(), dto.getCode(), dto.getName(), dto.getRegionId());
     }
 
+    // La provincia puede cambiar de region, asi que se invalidan todos los detalles de region
     @Override
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.PROVINCES_PAGE, allEntries = true),
+            @CacheEvict(value = CacheConfig.PROVINCES_ALL, allEntries = true),
+            @CacheEvict(value = CacheConfig.REGION_DETAIL, allEntries = true)
+    })
     public void update(ProvinceUpdateDTO dto) {
-        Province province = provinceRepository.findById(dto.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("province", "id", dto.getId()));
-
-        if (provinceRepository.existsByCodeAndIdNot(dto.getCode(), dto.getId())) {
-            throw new DuplicateResourceException("province", "code", dto.getCode());
+        // Un único UPDATE condicional por id, sin cargar la provincia ni la región
+        int updated;
+        try {
+            updated = provinceRepository.updateProvince(dto.getId(), dto.getCode(), dto.getName(),
+                    regionRepository.getReferenceById(dto.getRegionId()));
+        } catch (DataIntegrityViolationException e) {
+            throw translate(e, dto.getCode(), dto.getRegionId());
         }
+        if (updated == 0) {
+            throw new ResourceNotFoundException("province", "id", dto.getId());
+        }
+        referenceDataVersionService.provincesChanged();
+        typeaheadService.provinceSaved(dto.getId(), dto.getCode(), dto.getName(), dto.getRegionId());
+    }
 
-        Region region = regionService.findById(dto.getRegionId());
-        province.setCode(dto.getCode());
-        province.setName(dto.getName());
-        province.setRegion(region);
-
-        provinceRepository.save(province);
+    private RuntimeException translate(DataIntegrityViolationException e, String code, Long regionId) {
+        if (ConstraintViolations.isDuplicateKey(e)) {
+            return new DuplicateResourceException("province", "code", code);
+        }
+        if (ConstraintViolations.isMissingReference(e)) {
+            return new ResourceNotFoundException("region", "id", regionId);
+        }
+        return e;
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.PROVINCES_PAGE, allEntries = true),
+            @CacheEvict(value = CacheConfig.PROVINCES_ALL, allEntries = true),
+            @CacheEvict(value = CacheConfig.REGION_DETAIL, allEntries = true)
+    })
     public void delete(Long id) {
-        if (!provinceRepository.existsById(id)) {
+        // DELETE directo: si no borra ninguna fila es que no existia
+        if (provinceRepository.deleteByIdIn(List.of(id)) == 0) {
             throw new ResourceNotFoundException("province", "id", id);
         }
-        provinceRepository.deleteById(id);
+        referenceDataVersionService.provincesChanged();
+        entityCountService.rowsChanged(CountedTable.PROVINCES);
+        typeaheadService.provinceDeleted(id);
+    }
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.PROVINCES_PAGE, allEntries = true),
+            @CacheEvict(value = CacheConfig.PROVINCES_ALL, allEntries = true),
+            @CacheEvict(value = CacheConfig.REGION_DETAIL, allEntries = true)
+    })
+    public int deleteAll(Collection<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        if (requested.isEmpty()) {
+            return 0;
+        }
+        Set<Long> missing = new LinkedHashSet<>(requested);
+        missing.removeAll(provinceRepository.findExistingIds(requested));
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("province", "ids", missing);
+        }
+        int deleted = provinceRepository.deleteByIdIn(requested);
+        referenceDataVersionService.provincesChanged();
+        entityCountService.rowsChanged(CountedTable.PROVINCES);
+        requested.forEach(typeaheadService::provinceDeleted);
+        return deleted;
     }
 
     @Override
@@ -84,14 +196,32 @@ public class ProvinceServiceImpl implements ProvinceService {
     }
 
     @Override
+    @Cacheable(CacheConfig.PROVINCES_ALL)
     public List<ProvinceDTO> listAll() {
         return provinceRepository.findAll().stream()
                 .map(ProvinceMapper::toDTO)
                 .toList();
     }
 
+    /**
+     * Traduce las propiedades de orden del listado (DTO) a propiedades de la entidad.
+     * La columna "regionName" de la vista corresponde a {@code region.name}.
+     */
+    private Pageable toEntitySort(Pageable pageable) {
+        if (pageable.getSort().isUnsorted()) {
+            return pageable;
+        }
+        Sort sort = Sort.by(pageable.getSort().stream()
+                .map(order -> "regionName".equals(order.getProperty())
+                        ? order.withProperty("region.name")
+                        : order)
+                .toList());
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+    }
+
+    // Lista inmutable en memoria: no consulta la BD salvo que las regiones hayan cambiado
     @Override
-    public Object listRegionsForSelect() {
-        return null;
+    public List<RegionOptionDTO> listRegionsForSelect() {
+        return regionOptionsService.getBundle().getOptions();
     }
 }
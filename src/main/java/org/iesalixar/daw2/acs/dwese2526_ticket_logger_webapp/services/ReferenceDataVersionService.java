@@ -0,0 +1,20 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+/**
+ * Sellos de versión de los conjuntos de datos de referencia (regiones y provincias).
+ * <p>
+ * Cada escritura incrementa el sello del conjunto afectado; las páginas que dependen de él
+ * derivan su ETag de estos sellos, de modo que un cliente con la copia al día recibe un 304
+ * sin consultar la base de datos ni renderizar la plantilla.
+ * </p>
+ */
+public interface ReferenceDataVersionService {
+    long getRegionsVersion();
+    long getProvincesVersion();
+
+    /** Marca las regiones como modificadas (tras el commit si hay transacción activa). */
+    void regionsChanged();
+
+    /** Marca las provincias como modificadas (tras el commit si hay transacción activa). */
+    void provincesChanged();
+}
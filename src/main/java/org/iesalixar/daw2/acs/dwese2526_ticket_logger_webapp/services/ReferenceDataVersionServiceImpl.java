@@ -0,0 +1,41 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementación en memoria de los sellos de versión.
+ * <p>
+ * Los contadores arrancan en la hora de inicio para que un reinicio nunca reutilice un sello
+ * anterior. El incremento se hace en {@code afterCompletion} (después de todos los
+ * {@code afterCommit}, incluida la invalidación de la cache de lectura): así ninguna petición
+ * concurrente puede asociar el sello nuevo a datos anteriores a la escritura.
+ * </p>
+ */
+@Service
+public class ReferenceDataVersionServiceImpl implements ReferenceDataVersionService {
+
+    private final AtomicLong regionsVersion = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong provincesVersion = new AtomicLong(System.currentTimeMillis());
+
+    @Override
+    public long getRegionsVersion() {
+        return regionsVersion.get();
+    }
+
+    @Override
+    public long getProvincesVersion() {
+        return provincesVersion.get();
+    }
+
+    @Override
+    public void regionsChanged() {
+        AfterCommit.runAfterCompletion(regionsVersion::incrementAndGet);
+    }
+
+    @Override
+    public void provincesChanged() {
+        AfterCommit.runAfterCompletion(provincesVersion::incrementAndGet);
+    }
+}
@@ -0,0 +1,16 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionOptionsBundleDTO;
+
+/**
+ * Proveedor de las opciones de región para los formularios (desplegable de provincias).
+ */
+public interface RegionOptionsService {
+
+    /**
+     * Devuelve la instantánea vigente, reconstruyéndola solo si las regiones han cambiado.
+     *
+     * @return opciones ordenadas por nombre y su JSON versionado.
+     */
+    RegionOptionsBundleDTO getBundle();
+}
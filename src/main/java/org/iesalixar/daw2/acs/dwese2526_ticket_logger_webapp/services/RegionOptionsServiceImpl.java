@@ -0,0 +1,84 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionOptionDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionOptionsBundleDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.RegionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Mantiene en memoria las opciones de región ya ordenadas y serializadas.
+ * <p>
+ * La instantánea se asocia al sello de versión de regiones de
+ * {@link ReferenceDataVersionService}; mientras no cambie, los formularios la reutilizan sin
+ * tocar la base de datos. Cuando una escritura incrementa el sello, la siguiente petición
+ * reconstruye la instantánea (una sola vez, el resto de hilos esperan y la reutilizan).
+ * </p>
+ */
+@Service
+public class RegionOptionsServiceImpl implements RegionOptionsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegionOptionsServiceImpl.class);
+
+    @Autowired
+    private RegionRepository regionRepository;
+
+    @Autowired
+    private ReferenceDataVersionService referenceDataVersionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private volatile RegionOptionsBundleDTO bundle;
+
+    @Override
+    public RegionOptionsBundleDTO getBundle() {
+        RegionOptionsBundleDTO current = bundle;
+        long version = referenceDataVersionService.getRegionsVersion();
+        if (current != null && current.getVersion() == version) {
+            return current;
+        }
+        synchronized (this) {
+            current = bundle;
+            version = referenceDataVersionService.getRegionsVersion();
+            if (current == null || current.getVersion() != version) {
+                // La versión se lee antes que los datos: si entra una escritura mientras tanto,
+                // el sello cambia otra vez y la siguiente petición vuelve a reconstruir
+                current = build(version);
+                bundle = current;
+            }
+            return current;
+        }
+    }
+
+    private RegionOptionsBundleDTO build(long version) {
+        List<RegionOptionDTO> options = List.copyOf(regionRepository.findAllForSelect());
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(options);
+            logger.info("Opciones de región reconstruidas: {} regiones, versión {}", options.size(), version);
+            return new RegionOptionsBundleDTO(version, options, json, gzip(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudieron serializar las opciones de región", e);
+        }
+    }
+
+    private byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
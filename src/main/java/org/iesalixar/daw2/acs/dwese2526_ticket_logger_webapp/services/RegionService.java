@@ -1,5 +1,6 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
 
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.KeysetPageDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionCreateDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionDetailDTO;
@@ -7,16 +8,22 @@ import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionUpdateDT
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Region;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface RegionService {
     Page<RegionDTO> list(Pageable pageable);
+    Slice<RegionDTO> listSlice(Pageable pageable);
+    long approximateTotal();
+    KeysetPageDTO<RegionDTO> listKeyset(String cursor, int size);
     RegionUpdateDTO getForEdit(Long id);
     void create(RegionCreateDTO dto);
     void update(RegionUpdateDTO dto);
     void delete(Long id);
-    RegionDetailDTO getDetail(Long id);
+    int deleteAll(Collection<Long> ids);
+    RegionDetailDTO getDetail(Long id, String cursor, int size);
 
     List<RegionDTO> listAll();
     Region findById(Long id);
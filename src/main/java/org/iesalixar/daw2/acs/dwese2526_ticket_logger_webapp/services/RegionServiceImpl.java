@@ -1,7 +1,11 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
 
 import jakarta.transaction.Transactional;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.config.CacheConfig;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.KeysetCursor;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.KeysetPageDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionCreateDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.ProvinceDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionDetailDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.RegionUpdateDTO;
@@ -9,13 +13,25 @@ import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Region;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.DuplicateResourceException;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.ResourceNotFoundException;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.mappers.RegionMapper;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.ProvinceRepository;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.RegionRepository;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.EntityCountService.CountedTable;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -24,9 +40,45 @@ public class RegionServiceImpl implements RegionService{
     @Autowired
     private RegionRepository regionRepository;
 
+    @Autowired
+    private ProvinceRepository provinceRepository;
+
+    @Autowired
+    private ReferenceDataVersionService referenceDataVersionService;
+
+    @Autowired
+    private TypeaheadService typeaheadService;
+
+    @Autowired
+    private EntityCountService entityCountService;
+
     @Override
+    @Cacheable(CacheConfig.REGIONS_PAGE)
     public Page<RegionDTO> list(Pageable pageable) {
-        return regionRepository.findAll(pageable).map(RegionMapper::toDTO);
+        // Filas sin COUNT(*); el total exacto sale de la cache de totales
+        Slice<RegionDTO> slice = listSlice(pageable);
+        return new PageImpl<>(slice.getContent(), pageable, entityCountService.exactCount(CountedTable.REGIONS));
+    }
+
+    @Override
+    public Slice<RegionDTO> listSlice(Pageable pageable) {
+        return regionRepository.findSlice(pageable).map(RegionMapper::toDTO);
+    }
+
+    @Override
+    public long approximateTotal() {
+        return entityCountService.approximateCount(CountedTable.REGIONS);
+    }
+
+    @Override
+    public KeysetPageDTO<RegionDTO> listKeyset(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        // Se lee una fila de mas para saber si hay pagina siguiente sin lanzar COUNT(*)
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<RegionDTO> rows = (after == null)
+                ? regionRepository.findKeysetFirstPage(limit)
+                : regionRepository.findKeysetPageAfter(after.getKey(), after.getId(), limit);
+        return KeysetPageDTO.of(rows, size, after == null, r -> new KeysetCursor(r.getName(), r.getId()));
     }
 
     @Override
@@ -37,42 +89,124 @@ public class RegionServiceImpl implements RegionService{
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.REGIONS_PAGE, allEntries = true),
+            @CacheEvict(value = CacheConfig.REGIONS_ALL, allEntries = true)
+    })
     public void create(RegionCreateDTO dto) {
-        if (regionRepository.existsByCode(dto.getCode())) {
-            throw new DuplicateResourceException("region", "code", dto.getCode());
+        // Sin existsByCode previo: el índice único de regions.code decide
+        Region region;
+        try {
+            region = regionRepository.saveAndFlush(RegionMapper.toEntity(dto));
+        } catch (DataIntegrityViolationException e) {
+            throw translate(e, dto.getCode());
         }
-        Region region = RegionMapper.toEntity(dto);
-        regionRepository.save(region);
+        referenceDataVersionService.regionsChanged();
+        entityCountService.rowsChanged(CountedTable.REGIONS);
+        typeaheadService.regionSaved(region.getId(), region.getCode(), region.getName());
     }
 
+    // El nombre de la region aparece en el listado de provincias, por eso tambien se invalida
     @Override
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.REGIONS_PAGE, allEntries = true),
+            @CacheEvict(value = CacheConfig.REGIONS_ALL, allEntries = true),
+            @CacheEvict(value = CacheConfig.REGION_DETAIL, allEntries = true),
+            @CacheEvict(value = CacheConfig.PROVINCES_PAGE, allEntries = true),
+            @CacheEvict(value = CacheConfig.PROVINCES_ALL, allEntries = true)
+    })
     public void update(RegionUpdateDTO dto) {
-        if (regionRepository.existsByCodeAndIdNot(dto.getCode(), dto.getId())){
-            throw new DuplicateResourceException("region", "code", dto.getCode());
+        // Un único UPDATE condicional por id, sin cargar la entidad
+        int updated;
+        try {
+            updated = regionRepository.updateCodeAndName(dto.getId(), dto.getCode(), dto.getName());
+        } catch (DataIntegrityViolationException e) {
+            throw translate(e, dto.getCode());
+        }
+        if (updated == 0) {
+            throw new ResourceNotFoundException("region", "id", dto.getId());
         }
-        Region region = regionRepository.findById(dto.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("region", "id", dto.getId()));
+        referenceDataVersionService.regionsChanged();
+        typeaheadService.regionSaved(dto.getId(), dto.getCode(), dto.getName());
+    }
 
-        RegionMapper.copyToExistingEntity(dto, region);
-        regionRepository.save(region);
+    private RuntimeException translate(DataIntegrityViolationException e, String code) {
+        if (ConstraintViolations.isDuplicateKey(e)) {
+            return new DuplicateResourceException("region", "code", code);
+        }
+        return e;
     }
 
+    // Borrar una region elimina tambien sus provincias
     @Override
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.REGIONS_PAGE, allEntries = true),
+            @CacheEvict(value = CacheConfig.REGIONS_ALL, allEntries = true),
+            @CacheEvict(value = CacheConfig.REGION_DETAIL, allEntries = true),
+            @CacheEvict(value = CacheConfig.PROVINCES_PAGE, allEntries = true),
+            @CacheEvict(value = CacheConfig.PROVINCES_ALL, allEntries = true)
+    })
     public void delete(Long id) {
-        if (!regionRepository.existsById(id)) {
+        if (regionRepository.findExistingIds(List.of(id)).isEmpty()) {
             throw new ResourceNotFoundException("region", "id", id);
         }
-        regionRepository.deleteById(id);
+        deleteExisting(List.of(id));
+    }
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.REGIONS_PAGE, allEntries = true),
+            @CacheEvict(value = CacheConfig.REGIONS_ALL, allEntries = true),
+            @CacheEvict(value = CacheConfig.REGION_DETAIL, allEntries = true),
+            @CacheEvict(value = CacheConfig.PROVINCES_PAGE, allEntries = true),
+            @CacheEvict(value = CacheConfig.PROVINCES_ALL, allEntries = true)
+    })
+    public int deleteAll(Collection<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        if (requested.isEmpty()) {
+            return 0;
+        }
+        Set<Long> missing = new LinkedHashSet<>(requested);
+        missing.removeAll(regionRepository.findExistingIds(requested));
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("region", "ids", missing);
+        }
+        return deleteExisting(requested);
+    }
+
+    /**
+     * Borrado por conjuntos: primero las provincias de esas regiones (clave ajena) y después
+     * las regiones, dos sentencias en total sin cargar ninguna entidad.
+     */
+    private int deleteExisting(Collection<Long> ids) {
+        provinceRepository.deleteByRegionIdIn(ids);
+        int deleted = regionRepository.deleteByIdIn(ids);
+        referenceDataVersionService.regionsChanged();
+        referenceDataVersionService.provincesChanged();
+        entityCountService.rowsChanged(CountedTable.REGIONS);
+        entityCountService.rowsChanged(CountedTable.PROVINCES);
+        ids.forEach(typeaheadService::regionDeleted);
+        return deleted;
     }
 
     @Override
-    public RegionDetailDTO getDetail(Long id) {
-        Region region = regionRepository.findByIdWithProvinces(id)
+    @Cacheable(value = CacheConfig.REGION_DETAIL, key = "{#id, #cursor, #size}")
+    public RegionDetailDTO getDetail(Long id, String cursor, int size) {
+        // Cabecera sin provincias; estas se leen aparte, una página cada vez
+        Region region = regionRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("region", "id", id));
-        return RegionMapper.toDetailDTO(region);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<ProvinceDTO> rows = (after == null)
+                ? provinceRepository.findKeysetFirstPageByRegion(id, limit)
+                : provinceRepository.findKeysetPageByRegionAfter(id, after.getKey(), after.getId(), limit);
+        KeysetPageDTO<ProvinceDTO> provinces =
+                KeysetPageDTO.of(rows, size, after == null, p -> new KeysetCursor(p.getName(), p.getId()));
+        return RegionMapper.toDetailDTO(region, provinceRepository.countByRegionId(id), provinces);
     }
 
     @Override
+    @Cacheable(CacheConfig.REGIONS_ALL)
     public List<RegionDTO> listAll() {
         return regionRepository.findAll()
                 .stream()
@@ -0,0 +1,247 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice en memoria para autocompletado por nombre y código.
+ * <p>
+ * Los textos se normalizan (minúsculas y sin tildes ni diéresis, así "avila" encuentra
+ * "Ávila"). Se mantienen dos estructuras:
+ * </p>
+ * <ul>
+ *   <li>un mapa ordenado de palabras para consultas cortas (1-2 caracteres) por prefijo;</li>
+ *   <li>listas invertidas de trigramas para consultas de 3 o más caracteres: se intersecan
+ *       las listas de los trigramas de la consulta y se verifica la coincidencia.</li>
+ * </ul>
+ * <p>
+ * Las lecturas son concurrentes; las altas, cambios y bajas toman el cerrojo de escritura
+ * y actualizan solo las entradas afectadas.
+ * </p>
+ */
+public class TypeaheadIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /** Entrada indexada. {@code parentId} es la región en el índice de provincias. */
+    public record Entry(Long id, String code, String name, Long parentId) {
+    }
+
+    private record Indexed(Entry entry, String normalizedName, String normalizedCode, Set<String> tokens,
+                           Set<String> trigrams) {
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Indexed> entries = new HashMap<>();
+    private final NavigableMap<String, Set<Long>> tokens = new TreeMap<>();
+    private final Map<String, Set<Long>> trigrams = new HashMap<>();
+
+    /** Sustituye todo el contenido del índice. */
+    public void rebuild(Collection<Entry> all) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            tokens.clear();
+            trigrams.clear();
+            all.forEach(this::addUnlocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Da de alta o actualiza una entrada. */
+    public void put(Entry entry) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(entry.id());
+            addUnlocked(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Elimina una entrada (si existe). */
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Elimina todas las entradas cuyo padre es {@code parentId} (borrado en cascada). */
+    public void removeByParent(Long parentId) {
+        lock.writeLock().lock();
+        try {
+            List<Long> children = entries.values().stream()
+                    .filter(i -> parentId.equals(i.entry().parentId()))
+                    .map(i -> i.entry().id())
+                    .toList();
+            children.forEach(this::removeUnlocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Entry get(Long id) {
+        lock.readLock().lock();
+        try {
+            Indexed indexed = entries.get(id);
+            return indexed != null ? indexed.entry() : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca entradas cuyo nombre o código contenga la consulta.
+     * Primero las que empiezan por ella (código exacto, nombre, palabra) y después el resto,
+     * en orden alfabético dentro de cada grupo.
+     *
+     * @param query texto escrito por el usuario.
+     * @param limit número máximo de resultados.
+     * @return entradas encontradas.
+     */
+    public List<Entry> search(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Set<Long> candidates = q.length() < 3 ? byTokenPrefix(q) : byTrigrams(q);
+            List<Indexed> matches = new ArrayList<>();
+            for (Long id : candidates) {
+                Indexed indexed = entries.get(id);
+                if (indexed != null && (indexed.normalizedName().contains(q) || indexed.normalizedCode().contains(q))) {
+                    matches.add(indexed);
+                }
+            }
+            matches.sort(Comparator.<Indexed>comparingInt(i -> rank(i, q))
+                    .thenComparing(Indexed::normalizedName)
+                    .thenComparing(i -> i.entry().id()));
+            return matches.stream().limit(limit).map(Indexed::entry).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Minúsculas sin marcas diacríticas ni espacios sobrantes. */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.trim(), Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private int rank(Indexed indexed, String q) {
+        if (indexed.normalizedCode().equals(q)) {
+            return 0;
+        }
+        if (indexed.normalizedName().startsWith(q)) {
+            return 1;
+        }
+        for (String token : indexed.tokens()) {
+            if (token.startsWith(q)) {
+                return 2;
+            }
+        }
+        return 3;
+    }
+
+    private Set<Long> byTokenPrefix(String prefix) {
+        Set<Long> result = new HashSet<>();
+        tokens.subMap(prefix, true, prefix + Character.MAX_VALUE, false)
+                .values().forEach(result::addAll);
+        return result;
+    }
+
+    private Set<Long> byTrigrams(String q) {
+        Set<Long> result = null;
+        for (String trigram : trigramsOf(q)) {
+            Set<Long> posting = trigrams.get(trigram);
+            if (posting == null) {
+                return Set.of();
+            }
+            if (result == null) {
+                result = new HashSet<>(posting);
+            } else {
+                result.retainAll(posting);
+                if (result.isEmpty()) {
+                    return result;
+                }
+            }
+        }
+        return result != null ? result : Set.of();
+    }
+
+    private void addUnlocked(Entry entry) {
+        String normalizedName = normalize(entry.name());
+        String normalizedCode = normalize(entry.code());
+        Set<String> entryTokens = new HashSet<>();
+        for (String token : WORD_SEPARATORS.split(normalizedName)) {
+            if (!token.isEmpty()) {
+                entryTokens.add(token);
+            }
+        }
+        if (!normalizedCode.isEmpty()) {
+            entryTokens.add(normalizedCode);
+        }
+        Set<String> entryTrigrams = new HashSet<>(trigramsOf(normalizedName));
+        entryTrigrams.addAll(trigramsOf(normalizedCode));
+
+        Indexed indexed = new Indexed(entry, normalizedName, normalizedCode, entryTokens, entryTrigrams);
+        entries.put(entry.id(), indexed);
+        entryTokens.forEach(t -> tokens.computeIfAbsent(t, k -> new HashSet<>()).add(entry.id()));
+        entryTrigrams.forEach(t -> trigrams.computeIfAbsent(t, k -> new HashSet<>()).add(entry.id()));
+    }
+
+    private void removeUnlocked(Long id) {
+        Indexed indexed = entries.remove(id);
+        if (indexed == null) {
+            return;
+        }
+        indexed.tokens().forEach(t -> removePosting(tokens, t, id));
+        indexed.trigrams().forEach(t -> removePosting(trigrams, t, id));
+    }
+
+    private static void removePosting(Map<String, Set<Long>> postings, String key, Long id) {
+        Set<Long> ids = postings.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            postings.remove(key);
+        }
+    }
+
+    private static Set<String> trigramsOf(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            result.add(text.substring(i, i + 3));
+        }
+        return result;
+    }
+}
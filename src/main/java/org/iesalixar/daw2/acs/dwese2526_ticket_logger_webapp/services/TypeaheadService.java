@@ -0,0 +1,22 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.TypeaheadHitDTO;
+
+import java.util.List;
+
+/**
+ * Autocompletado de regiones y provincias sobre un índice en memoria.
+ * Los métodos de mantenimiento aplican el cambio tras el commit de la transacción en curso.
+ */
+public interface TypeaheadService {
+    List<TypeaheadHitDTO> searchRegions(String query, int limit);
+    List<TypeaheadHitDTO> searchProvinces(String query, int limit);
+
+    void regionSaved(Long id, String code, String name);
+    void regionDeleted(Long id);
+    void provinceSaved(Long id, String code, String name, Long regionId);
+    void provinceDeleted(Long id);
+
+    /** Recarga ambos índices desde la base de datos (p.ej. tras una importación masiva). */
+    void rebuild();
+}
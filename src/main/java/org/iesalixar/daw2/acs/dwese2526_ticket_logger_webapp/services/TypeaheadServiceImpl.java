@@ -0,0 +1,97 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.TypeaheadHitDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.ProvinceRepository;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.RegionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Mantiene un {@link TypeaheadIndex} para regiones y otro para provincias.
+ * <p>
+ * Ambos se cargan al arrancar la aplicación con dos consultas de proyección y después se
+ * actualizan entrada a entrada desde los servicios de escritura. El nombre de la región de
+ * cada provincia se resuelve en el índice de regiones al responder, así que renombrar una
+ * región no obliga a reindexar sus provincias.
+ * </p>
+ */
+@Service
+public class TypeaheadServiceImpl implements TypeaheadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TypeaheadServiceImpl.class);
+
+    @Autowired
+    private RegionRepository regionRepository;
+
+    @Autowired
+    private ProvinceRepository provinceRepository;
+
+    private final TypeaheadIndex regionIndex = new TypeaheadIndex();
+    private final TypeaheadIndex provinceIndex = new TypeaheadIndex();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Override
+    public void rebuild() {
+        long start = System.nanoTime();
+        regionIndex.rebuild(regionRepository.findAllForSelect().stream()
+                .map(r -> new TypeaheadIndex.Entry(r.getId(), r.getCode(), r.getName(), null))
+                .toList());
+        provinceIndex.rebuild(provinceRepository.findAllForIndex().stream()
+                .map(p -> new TypeaheadIndex.Entry(p.getId(), p.getCode(), p.getName(), p.getRegionId()))
+                .toList());
+        logger.info("Índices de autocompletado cargados: {} regiones, {} provincias en {} ms",
+                regionIndex.size(), provinceIndex.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public List<TypeaheadHitDTO> searchRegions(String query, int limit) {
+        return regionIndex.search(query, limit).stream()
+                .map(e -> new TypeaheadHitDTO(e.id(), e.code(), e.name(), null, null))
+                .toList();
+    }
+
+    @Override
+    public List<TypeaheadHitDTO> searchProvinces(String query, int limit) {
+        return provinceIndex.search(query, limit).stream()
+                .map(e -> {
+                    TypeaheadIndex.Entry region = regionIndex.get(e.parentId());
+                    return new TypeaheadHitDTO(e.id(), e.code(), e.name(), e.parentId(),
+                            region != null ? region.name() : null);
+                })
+                .toList();
+    }
+
+    @Override
+    public void regionSaved(Long id, String code, String name) {
+        AfterCommit.run(() -> regionIndex.put(new TypeaheadIndex.Entry(id, code, name, null)));
+    }
+
+    // RegionServiceImpl.deleteExisting borra explícitamente las provincias de la región: se quitan también del índice
+    @Override
+    public void regionDeleted(Long id) {
+        AfterCommit.run(() -> {
+            regionIndex.remove(id);
+            provinceIndex.removeByParent(id);
+        });
+    }
+
+    @Override
+    public void provinceSaved(Long id, String code, String name, Long regionId) {
+        AfterCommit.run(() -> provinceIndex.put(new TypeaheadIndex.Entry(id, code, name, regionId)));
+    }
+
+    @Override
+    public void provinceDeleted(Long id) {
+        AfterCommit.run(() -> provinceIndex.remove(id));
+    }
+}
@@ -0,0 +1,22 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UploadGcResultDTO;
+
+/**
+ * Recolector de ficheros subidos que ya no referencia ningún perfil.
+ * <p>
+ * {@link FileStorageService#release(String)} libera los ficheros en el momento, pero lo que
+ * se escapa (subidas cuya transacción falló, miniaturas de originales borrados, temporales de
+ * un proceso interrumpido) solo lo recoge este barrido periódico.
+ * </p>
+ */
+public interface UploadGarbageCollector {
+
+    /**
+     * Recorre {@code uploads} y retira los ficheros huérfanos más antiguos que el periodo de
+     * gracia. Si ya hay una pasada en curso no hace nada.
+     *
+     * @return resumen de la pasada, o {@code null} si no se ha ejecutado.
+     */
+    UploadGcResultDTO collect();
+}
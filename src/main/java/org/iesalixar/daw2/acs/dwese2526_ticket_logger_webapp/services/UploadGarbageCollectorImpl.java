@@ -0,0 +1,267 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UploadGcResultDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.UserProfileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Barrido periódico de {@code <app.upload-root>/uploads}.
+ * <p>
+ * El directorio se lee con un {@link DirectoryStream} (sin cargar el listado entero) y los
+ * nombres se reparten en lotes de {@code app.uploads.gc.batch-size} entre
+ * {@code app.uploads.gc.parallelism} hilos. Cada lote comprueba sus originales con una sola
+ * consulta {@code IN} contra {@code user_profiles.profile_image}, así que la memoria depende del
+ * tamaño del lote y no del número de ficheros ni de perfiles. La cola de lotes es corta y, si se
+ * llena, el hilo que lee el directorio procesa el lote él mismo: la lectura nunca se adelanta
+ * más de unos pocos lotes.
+ * </p>
+ * <p>
+ * Se retiran los ficheros sin modificar en {@code app.uploads.gc.grace}:
+ * </p>
+ * <ul>
+ *     <li>originales que no referencia ningún perfil;</li>
+ *     <li>miniaturas cuyo original ya no existe;</li>
+ *     <li>temporales ({@code .upload-*}, {@code .thumb-*}) de escrituras interrumpidas.</li>
+ * </ul>
+ * <p>
+ * Con {@code app.uploads.gc.mode=quarantine} se mueven a {@code <app.upload-root>/quarantine}
+ * en lugar de borrarse. Actuator publica {@code uploads.gc.files} y {@code uploads.gc.bytes}.
+ * </p>
+ */
+@Service
+public class UploadGarbageCollectorImpl implements UploadGarbageCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadGarbageCollectorImpl.class);
+
+    private static final String UPLOADS_PREFIX = "/uploads/";
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private AvatarThumbnailService avatarThumbnailService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.upload-root}")
+    private String uploadRootPath;
+
+    @Value("${app.uploads.gc.grace:24h}")
+    private Duration grace;
+
+    @Value("${app.uploads.gc.mode:delete}")
+    private String mode;
+
+    @Value("${app.uploads.gc.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.uploads.gc.parallelism:2}")
+    private int parallelism;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private Counter filesCounter;
+    private Counter bytesCounter;
+
+    @PostConstruct
+    void init() {
+        filesCounter = Counter.builder("uploads.gc.files")
+                .description("Ficheros subidos huérfanos retirados")
+                .register(meterRegistry);
+        bytesCounter = Counter.builder("uploads.gc.bytes")
+                .description("Bytes liberados por el recolector de ficheros subidos")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    @Scheduled(cron = "${app.uploads.gc.cron:0 0 4 * * *}")
+    public UploadGcResultDTO collect() {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Recolección de ficheros subidos ya en curso, se omite esta pasada");
+            return null;
+        }
+        try {
+            return sweep();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private UploadGcResultDTO sweep() {
+        Path uploadsDir = Paths.get(uploadRootPath).resolve("uploads");
+        if (!Files.isDirectory(uploadsDir)) {
+            return new UploadGcResultDTO(0, 0, 0, 0);
+        }
+        long start = System.nanoTime();
+        Instant cutoff = Instant.now().minus(grace);
+        Path quarantineDir = "quarantine".equalsIgnoreCase(mode)
+                ? Paths.get(uploadRootPath).resolve("quarantine")
+                : null;
+        Tally tally = new Tally();
+
+        ThreadPoolExecutor executor = newExecutor();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(uploadsDir)) {
+            List<Path> batch = new ArrayList<>(batchSize);
+            for (Path entry : entries) {
+                batch.add(entry);
+                if (batch.size() == batchSize) {
+                    submit(executor, batch, cutoff, quarantineDir, tally);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(executor, batch, cutoff, quarantineDir, tally);
+            }
+        } catch (IOException e) {
+            logger.error("Error al recorrer {}: {}", uploadsDir, e.getMessage(), e);
+        } finally {
+            executor.shutdown();
+            awaitQuietly(executor);
+        }
+
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        UploadGcResultDTO result = new UploadGcResultDTO(
+                tally.scanned.sum(), tally.reclaimed.sum(), tally.bytes.sum(), durationMillis);
+        logger.info("Recolección de ficheros subidos: examinados={}, {}={}, bytes liberados={}, {} ms",
+                result.getScanned(), quarantineDir != null ? "en cuarentena" : "borrados",
+                result.getReclaimed(), result.getReclaimedBytes(), durationMillis);
+        return result;
+    }
+
+    private void submit(ThreadPoolExecutor executor, List<Path> batch, Instant cutoff, Path quarantineDir, Tally tally) {
+        executor.execute(() -> {
+            try {
+                processBatch(batch, cutoff, quarantineDir, tally);
+            } catch (RuntimeException e) {
+                // Un lote fallido (p. ej. la base de datos no responde) no detiene el resto
+                logger.warn("Lote de la recolección de ficheros subidos abortado: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Clasifica un lote: temporales y miniaturas se deciden con el propio sistema de ficheros;
+     * los originales se comprueban todos juntos contra la base de datos.
+     */
+    private void processBatch(List<Path> batch, Instant cutoff, Path quarantineDir, Tally tally) {
+        List<String> originals = new ArrayList<>();
+        for (Path path : batch) {
+            String fileName = path.getFileName().toString();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                continue;
+            } catch (IOException e) {
+                logger.debug("No se pudo leer {}: {}", fileName, e.getMessage());
+                continue;
+            }
+            if (!attributes.isRegularFile()) {
+                continue;
+            }
+            tally.scanned.increment();
+            if (!attributes.lastModifiedTime().toInstant().isBefore(cutoff)) {
+                continue;
+            }
+            if (fileName.startsWith(".")) {
+                reclaim(fileName, cutoff, quarantineDir, tally);
+            } else if (avatarThumbnailService.isRendition(fileName)) {
+                if (avatarThumbnailService.isOrphanRendition(fileName)) {
+                    reclaim(fileName, cutoff, quarantineDir, tally);
+                }
+            } else {
+                originals.add(UPLOADS_PREFIX + fileName);
+            }
+        }
+        if (originals.isEmpty()) {
+            return;
+        }
+        Set<String> referenced = new HashSet<>(userProfileRepository.findReferencedImages(originals));
+        for (String webPath : originals) {
+            if (!referenced.contains(webPath)) {
+                String fileName = webPath.substring(UPLOADS_PREFIX.length());
+                if (reclaim(fileName, cutoff, quarantineDir, tally)) {
+                    avatarThumbnailService.deleteRenditions(fileName);
+                }
+            }
+        }
+    }
+
+    private boolean reclaim(String fileName, Instant cutoff, Path quarantineDir, Tally tally) {
+        long bytes = fileStorageService.reclaim(fileName, cutoff, quarantineDir);
+        if (bytes < 0) {
+            return false;
+        }
+        logger.debug("Fichero huérfano retirado: {} ({} bytes)", fileName, bytes);
+        tally.reclaimed.increment();
+        tally.bytes.add(bytes);
+        filesCounter.increment();
+        bytesCounter.increment(bytes);
+        return true;
+    }
+
+    /** Ejecutor de una sola pasada; no se publica como bean. */
+    private ThreadPoolExecutor newExecutor() {
+        int threads = Math.max(1, parallelism);
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "uploads-gc-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private void awaitQuietly(ThreadPoolExecutor executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.debug("Esperando a que termine la recolección de ficheros subidos");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Contadores de una pasada, compartidos por los hilos del barrido. */
+    private static final class Tally {
+        final LongAdder scanned = new LongAdder();
+        final LongAdder reclaimed = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+    }
+}
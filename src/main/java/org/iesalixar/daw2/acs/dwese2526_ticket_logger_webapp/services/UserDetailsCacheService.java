@@ -0,0 +1,31 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.AuthUserSnapshotDTO;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Cache acotada (tamaño y TTL) de los datos de autenticación, por email normalizado.
+ * <p>
+ * Evita consultar {@code users} y {@code user_roles} en cada login. Las escrituras que
+ * cambian contraseña, estado, roles o perfil invalidan solo las entradas afectadas.
+ * </p>
+ */
+public interface UserDetailsCacheService {
+
+    /**
+     * Devuelve los datos cacheados del email o los carga con {@code loader} (una sola carga
+     * por email aunque lleguen varios logins a la vez).
+     */
+    AuthUserSnapshotDTO get(String email, Function<String, AuthUserSnapshotDTO> loader);
+
+    /** Datos cacheados del email, o {@code null} si no están en la cache (nunca consulta la BD). */
+    AuthUserSnapshotDTO getIfPresent(String email);
+
+    /** Invalida la entrada de un email (tras el commit si hay transacción activa). */
+    void evictByEmail(String email);
+
+    /** Invalida las entradas de esos usuarios (tras el commit si hay transacción activa). */
+    void evictByUserIds(Collection<Long> userIds);
+}
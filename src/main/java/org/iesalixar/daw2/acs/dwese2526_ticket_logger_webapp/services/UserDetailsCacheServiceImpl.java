@@ -0,0 +1,134 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.AuthUserSnapshotDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Implementación con Caffeine de la cache de datos de autenticación.
+ * <p>
+ * Las invalidaciones se aplican tras el commit, de modo que un login concurrente no pueda
+ * volver a cachear la contraseña o los roles anteriores a la escritura. Los contadores de
+ * aciertos, fallos y expulsiones se publican en Actuator como {@code cache.*{cache=users.details}}.
+ * </p>
+ * <p>
+ * Una carga en curso puede haber leído la fila antes del commit y terminar después de la
+ * invalidación. Cada invalidación incrementa primero una generación (por franja de email, o
+ * global si es por id) y después borra; la carga anota las generaciones antes de consultar y,
+ * si al terminar han cambiado, retira su propio resultado en lugar de dejarlo cacheado.
+ * </p>
+ */
+@Service
+public class UserDetailsCacheServiceImpl implements UserDetailsCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDetailsCacheServiceImpl.class);
+
+    private static final String CACHE_NAME = "users.details";
+
+    /** Franjas de generaciones por email. */
+    private static final int STRIPES = 64;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cache.user-details.maximum-size:1000}")
+    private long maximumSize;
+
+    @Value("${app.cache.user-details.expire-after-write:5m}")
+    private Duration expireAfterWrite;
+
+    private Cache<String, AuthUserSnapshotDTO> cache;
+
+    /** Generación de invalidaciones por franja de email. */
+    private final AtomicLongArray emailGenerations = new AtomicLongArray(STRIPES);
+
+    /** Generación de invalidaciones por id (el email del usuario puede no conocerse). */
+    private final AtomicLong idGeneration = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        logger.info("Cache de UserDetails configurada: maximumSize={}, expireAfterWrite={}", maximumSize, expireAfterWrite);
+    }
+
+    @Override
+    public AuthUserSnapshotDTO get(String email, Function<String, AuthUserSnapshotDTO> loader) {
+        String key = normalize(email);
+        int stripe = stripe(key);
+        long[] startGenerations = new long[2];
+        boolean[] loaded = new boolean[1];
+        AuthUserSnapshotDTO snapshot = cache.get(key, k -> {
+            startGenerations[0] = emailGenerations.get(stripe);
+            startGenerations[1] = idGeneration.get();
+            loaded[0] = true;
+            return loader.apply(email);
+        });
+        // Solo lo comprueba el hilo que ha cargado; ya está en la cache, así que cualquier
+        // invalidación posterior a esta comprobación también lo borra
+        if (loaded[0] && snapshot != null
+                && (emailGenerations.get(stripe) != startGenerations[0] || idGeneration.get() != startGenerations[1])) {
+            logger.debug("Carga de {} solapada con una invalidación, no se cachea", key);
+            cache.asMap().remove(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public AuthUserSnapshotDTO getIfPresent(String email) {
+        return email == null ? null : cache.getIfPresent(normalize(email));
+    }
+
+    @Override
+    public void evictByEmail(String email) {
+        if (email == null) {
+            return;
+        }
+        String key = normalize(email);
+        AfterCommit.run(() -> {
+            emailGenerations.incrementAndGet(stripe(key));
+            cache.invalidate(key);
+        });
+    }
+
+    @Override
+    public void evictByUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = Set.copyOf(userIds);
+        // El email puede haber cambiado en la misma escritura: se busca por id entre las entradas
+        AfterCommit.run(() -> {
+            idGeneration.incrementAndGet();
+            cache.asMap().values().removeIf(s -> ids.contains(s.getUserId()));
+        });
+    }
+
+    private int stripe(String key) {
+        return Math.floorMod(key.hashCode(), STRIPES);
+    }
+
+    private String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
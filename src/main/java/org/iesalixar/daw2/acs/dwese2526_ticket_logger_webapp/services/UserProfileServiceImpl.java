@@ -1,6 +1,7 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
 
 import jakarta.transaction.Transactional;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.StoredFileDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserProfileFormDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.User;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.UserProfile;
@@ -34,6 +35,12 @@ public class UserProfileServiceImpl implements UserProfileService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private AvatarThumbnailService avatarThumbnailService;
+
+    @Autowired
+    private UserDetailsCacheService userDetailsCacheService;
+
 
     @Override
     public UserProfileFormDTO getFormByEmail(String email) {
@@ -60,14 +67,15 @@ public class UserProfileServiceImpl implements UserProfileService {
         UserProfile profile = userProfileRepository.findByUserId(userId).orElse(null);
         boolean isNew = (profile == null);
 
-        // 3) Si hay imagen nueva, validar + guardar + borrar anterior
+        // 3) Si hay imagen nueva, validar + guardar (una sola vez, en streaming)
         if (profileImageFile != null && !profileImageFile.isEmpty()) {
             validateProfileImage(profileImageFile);
 
-            String oldImagePath = fileStorageService.saveFile(profileImageFile);
+            // La imagen anterior es la que consta en BD, no la que venga en el formulario
+            String oldImagePath = isNew ? null : profile.getProfileImage();
 
-            String newImageWebPath = fileStorageService.saveFile(profileImageFile);
-            if (newImageWebPath == null || newImageWebPath.isBlank()) {
+            StoredFileDTO stored = fileStorageService.store(profileImageFile);
+            if (stored == null) {
                 throw new InvalidFileException(
                         "userProfile",
                         "profileImageFile",
@@ -75,11 +83,16 @@ public class UserProfileServiceImpl implements UserProfileService {
                         "No se pudo guardar la imagen de perfil"
                 );
             }
-            profileDto.setProfileImage(newImageWebPath);
-
-            //Borrar anterior si existia
-            if (oldImagePath != null & !oldImagePath.isBlank()) {
-                fileStorageService.deleteFile(oldImagePath);
+            profileDto.setProfileImage(stored.getWebPath());
+            // Miniaturas en segundo plano tras el commit; hasta entonces se sirve el original
+            avatarThumbnailService.enqueue(stored.getWebPath());
+
+            // Los ficheros se comparten entre perfiles (mismo contenido = mismo fichero): el
+            // anterior se libera tras el commit y solo se borra si ya nadie lo usa. Si la
+            // transacción falla, el nuevo se queda sin referencias y no se borra aquí, porque
+            // otra subida con el mismo contenido podría estar usándolo.
+            if (oldImagePath != null && !oldImagePath.isBlank() && !oldImagePath.equals(stored.getWebPath())) {
+                fileStorageService.releaseAfterCommit(oldImagePath);
             }
         }
         // 4) Crear o actualizar entidad de perfil
@@ -92,6 +105,7 @@ public class UserProfileServiceImpl implements UserProfileService {
 
         // 5) Persistir
         userProfileRepository.save(profile);
+        userDetailsCacheService.evictByEmail(email);
     }
 
     private void validateProfileImage(MultipartFile file) {
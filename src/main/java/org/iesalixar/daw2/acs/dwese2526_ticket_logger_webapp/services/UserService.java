@@ -4,16 +4,22 @@ import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.*;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Role;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
 public interface UserService {
-    Page<UserDTO> list(Pageable pageable);
+    Page<UserListItemDTO> list(Pageable pageable);
+    Slice<UserListItemDTO> listSlice(Pageable pageable);
+    long approximateTotal();
+    KeysetPageDTO<UserListItemDTO> listKeyset(String cursor, int size);
     UserUpdateDTO getForEdit(Long id);
     void create(UserCreateDTO dto);
     void update(UserUpdateDTO dto, Set<Role> roles);
     void delete(Long id);
+    int deleteAll(Collection<Long> ids);
     UserDetailDTO getDetail(Long id);
     List<UserDTO> listAll();
 }
@@ -1,9 +1,14 @@
 package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
 
 import jakarta.transaction.Transactional;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.KeysetCursor;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.KeysetPageDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserCreateDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserDetailDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserListItemDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserLockStateDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserRoleNameDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserUpdateDTO;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Role;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.User;
@@ -11,17 +16,28 @@ import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.Duplicat
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.exceptions.ResourceNotFoundException;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.mappers.UserMapper;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.RoleRepository;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.UserProfileRepository;
 import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.UserRepository;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.EntityCountService.CountedTable;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -36,9 +52,53 @@ public class UserServiceImpl implements UserService{
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private EntityCountService entityCountService;
+
+    @Autowired
+    private UserDetailsCacheService userDetailsCacheService;
+
+    @Autowired
+    private LoginThrottleService loginThrottleService;
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Override
+    public Page<UserListItemDTO> list(Pageable pageable) {
+        // Filas sin COUNT(*); el total exacto sale de la cache de totales
+        Slice<UserListItemDTO> slice = listSlice(pageable);
+        return new PageImpl<>(slice.getContent(), pageable, entityCountService.exactCount(CountedTable.USERS));
+    }
+
+    @Override
+    public Slice<UserListItemDTO> listSlice(Pageable pageable) {
+        // Proyección con solo las columnas de la tabla: ni hash de contraseña ni perfil
+        Slice<UserListItemDTO> slice = userRepository.findListItems(pageable);
+        fillRoles(slice.getContent());
+        return slice;
+    }
+
+    @Override
+    public long approximateTotal() {
+        return entityCountService.approximateCount(CountedTable.USERS);
+    }
+
     @Override
-    public Page<UserDTO> list(Pageable pageable) {
-        return userRepository.findAll(pageable).map(UserMapper::toDTO);
+    public KeysetPageDTO<UserListItemDTO> listKeyset(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        // Se lee una fila de mas para saber si hay pagina siguiente sin lanzar COUNT(*)
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<UserListItemDTO> rows = (after == null)
+                ? userRepository.findKeysetFirstPage(limit)
+                : userRepository.findKeysetPageAfter(after.getKey(), after.getId(), limit);
+        KeysetPageDTO<UserListItemDTO> page = KeysetPageDTO.of(rows, size, after == null,
+                u -> new KeysetCursor(u.getEmail(), u.getId()));
+        fillRoles(page.getContent());
+        return page;
     }
 
     @Override
@@ -50,48 +110,118 @@ public class UserServiceImpl implements UserService{
 
     @Override
     public void create(UserCreateDTO dto) {
-        if (userRepository.existsByEmail(dto.getEmail())) {
-            throw new DuplicateResourceException("user", "email", dto.getEmail());
-        }
         LocalDateTime now = LocalDateTime.now();
 
         dto.setLastPasswordChange(now);
         dto.setPasswordExpiresAt(now.plusDays(PASSWORD_EXPIRY_DAYS));
 
         User user = UserMapper.toEntity(dto);
-        userRepository.save(user);
+        // Sin existsByEmail previo: el índice único de users.email decide
+        try {
+            userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw translate(e, dto.getEmail());
+        }
+        entityCountService.rowsChanged(CountedTable.USERS);
     }
 
     @Override
     public void update(UserUpdateDTO dto, Set<Role> roles) {
-        if (userRepository.existsByEmailAndIdNot(dto.getEmail(), dto.getId())){
-            throw new DuplicateResourceException("user", "email", dto.getEmail());
-        }
-        User user = userRepository.findById(dto.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("user", "id", dto.getId()));
-
         if (roles.size() != dto.getRoleIds().size()) {
             throw new ResourceNotFoundException("role", "ids", dto.getRoleIds());
         }
 
-        UserMapper.copyToExistingEntity(dto, user, roles);
-
+        // Los campos de contraseña solo se envían (no nulos) si se ha escrito una nueva
+        String passwordHash = null;
+        LocalDateTime lastPasswordChange = null;
+        LocalDateTime passwordExpiresAt = null;
         if (dto.getPasswordHash() != null && !dto.getPasswordHash().isBlank()) {
             LocalDateTime now = LocalDateTime.now();
-            user.setPasswordHash(passwordEncoder.encode(dto.getPasswordHash()));
-            user.setLastPasswordChange(now);
-            user.setPasswordExpiresAt(now.plusDays(PASSWORD_EXPIRY_DAYS));
+            passwordHash = passwordEncoder.encode(dto.getPasswordHash());
+            lastPasswordChange = now;
+            passwordExpiresAt = now.plusDays(PASSWORD_EXPIRY_DAYS);
         }
 
-        userRepository.save(user);
+        // Estado previo solo si se guarda desbloqueada: hace falta para saber si se desbloquea ahora
+        UserLockStateDTO previous = dto.isAccountNonLocked()
+                ? userRepository.findLockStateById(dto.getId()).orElse(null)
+                : null;
+
+        // Un único UPDATE condicional por id, sin cargar la entidad
+        int updated;
+        try {
+            updated = userRepository.updateUser(dto.getId(), dto.getEmail(), dto.isActive(),
+                    dto.isAccountNonLocked(), dto.getFailedLoginAttempts(), dto.isEmailVerified(),
+                    dto.isMustChangePassword(), passwordHash, lastPasswordChange, passwordExpiresAt);
+        } catch (DataIntegrityViolationException e) {
+            throw translate(e, dto.getEmail());
+        }
+        if (updated == 0) {
+            throw new ResourceNotFoundException("user", "id", dto.getId());
+        }
+
+        // Roles: se sincroniza la tabla intermedia sin cargar la colección
+        Set<Long> roleIds = roles.stream().map(Role::getId).collect(Collectors.toSet());
+        if (roleIds.isEmpty()) {
+            userRepository.deleteAllRoles(dto.getId());
+        } else {
+            userRepository.deleteRolesNotIn(dto.getId(), roleIds);
+            userRepository.insertMissingRoles(dto.getId(), roleIds);
+        }
+        // Contraseña, estado o roles pueden haber cambiado: fuera de la cache de login
+        userDetailsCacheService.evictByUserIds(List.of(dto.getId()));
+        if (previous != null && !previous.isAccountNonLocked()) {
+            // Desbloqueo manual (bloqueada -> desbloqueada): tras el commit se olvidan también los
+            // fallos en memoria, que están indexados por el email anterior a la edición
+            String email = previous.getEmail();
+            AfterCommit.run(() -> loginThrottleService.resetAccount(email));
+        }
+    }
+
+    private RuntimeException translate(DataIntegrityViolationException e, String email) {
+        if (ConstraintViolations.isDuplicateKey(e)) {
+            return new DuplicateResourceException("user", "email", email);
+        }
+        return e;
     }
 
     @Override
     public void delete(Long id) {
-        if (!userRepository.existsById(id)){
-            throw new ResourceNotFoundException("region", "id", id);
+        if (userRepository.findExistingIds(List.of(id)).isEmpty()) {
+            throw new ResourceNotFoundException("user", "id", id);
         }
-        userRepository.deleteById(id);
+        deleteExisting(List.of(id));
+    }
+
+    @Override
+    public int deleteAll(Collection<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        if (requested.isEmpty()) {
+            return 0;
+        }
+        Set<Long> missing = new LinkedHashSet<>(requested);
+        missing.removeAll(userRepository.findExistingIds(requested));
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("user", "ids", missing);
+        }
+        return deleteExisting(requested);
+    }
+
+    /**
+     * Borrado por conjuntos respetando las claves ajenas: tablas hijas primero y usuarios al final.
+     * Las imágenes de los perfiles borrados se liberan tras el commit (solo se borran si ya no
+     * las usa ningún otro perfil).
+     */
+    private int deleteExisting(Collection<Long> ids) {
+        List<String> profileImages = userProfileRepository.findProfileImagesByUserIdIn(ids);
+        userRepository.deletePasswordResetTokensByUserIdIn(ids);
+        userRepository.deleteRolesByUserIdIn(ids);
+        userRepository.deleteProfilesByUserIdIn(ids);
+        // Los ficheros se comparten por contenido: cada ruta se libera una sola vez
+        new LinkedHashSet<>(profileImages).forEach(fileStorageService::releaseAfterCommit);
+        entityCountService.rowsChanged(CountedTable.USERS);
+        userDetailsCacheService.evictByUserIds(ids);
+        return userRepository.deleteByIdIn(ids);
     }
 
     @Override
@@ -103,9 +233,30 @@ public class UserServiceImpl implements UserService{
 
     @Override
     public List<UserDTO> listAll() {
-        return userRepository.findAll()
-                .stream()
-                .map(UserMapper::toDTO)
-                .toList();
+        List<User> users = userRepository.findAll();
+        return UserMapper.toDTOList(users, loadRoleNames(users.stream().map(User::getId).toList()));
+    }
+
+    /** Rellena los roles de las filas del listado con una única consulta para todas ellas. */
+    private void fillRoles(List<UserListItemDTO> rows) {
+        Map<Long, Set<String>> roleNamesByUserId = loadRoleNames(rows.stream().map(UserListItemDTO::getId).toList());
+        for (UserListItemDTO row : rows) {
+            row.setRoles(roleNamesByUserId.getOrDefault(row.getId(), new HashSet<>()));
+        }
+    }
+
+    /**
+     * Lee los roles de varios usuarios con una única consulta IN, en lugar de inicializar
+     * la colección perezosa {@code roles} fila a fila (N+1).
+     */
+    private Map<Long, Set<String>> loadRoleNames(List<Long> userIds) {
+        Map<Long, Set<String>> roleNamesByUserId = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return roleNamesByUserId;
+        }
+        for (UserRoleNameDTO row : userRepository.findRoleNamesByUserIdIn(userIds)) {
+            roleNamesByUserId.computeIfAbsent(row.getUserId(), k -> new HashSet<>()).add(row.getRoleName());
+        }
+        return roleNamesByUserId;
     }
 }
@@ -27,6 +27,12 @@ CREATE TABLE IF NOT EXISTS provinces (
    region_id INT NOT NULL,
    FOREIGN KEY (region_id) REFERENCES regions(id)
 );
+
+-- Índices (name, id) para la paginación por clave: WHERE (name, id) > (?, ?) ORDER BY name, id
+CREATE INDEX IF NOT EXISTS idx_regions_name_id ON regions (name, id);
+CREATE INDEX IF NOT EXISTS idx_provinces_name_id ON provinces (name, id);
+-- Provincias de una región paginadas por (name, id) y COUNT por región en el detalle de región
+CREATE INDEX IF NOT EXISTS idx_provinces_region_name_id ON provinces (region_id, name, id);
 -- Crear tabla para perfil de usuario relación 1:1 con users
 CREATE TABLE IF NOT EXISTS user_profiles (
    -- Clave primaria = FK a users.id  (1:1 tipo "shared primary key")
@@ -52,6 +58,8 @@ CREATE TABLE IF NOT EXISTS user_profiles (
        ON DELETE CASCADE
        ON UPDATE CASCADE
 );
+-- Las imágenes se guardan por hash y se comparten: se cuenta quién usa cada una
+CREATE INDEX IF NOT EXISTS idx_user_profiles_profile_image ON user_profiles (profile_image);
 
 -- Tabla de roles
 CREATE TABLE IF NOT EXISTS roles (
@@ -125,3 +133,28 @@ CREATE TABLE IF NOT EXISTS password_reset_tokens (
     -- Acelera tareas de limpieza (borrar tokens caducados) y consultas por expiración.
     INDEX idx_prt_expires_at (expires_at)
     );
+
+-- Bandeja de salida de correo (patrón outbox).
+-- Los correos se insertan en la misma transacción que la operación que los genera
+-- y un proceso en segundo plano los entrega por SMTP con reintentos.
+CREATE TABLE IF NOT EXISTS mail_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    -- Cuerpo ya renderizado (texto plano o HTML)
+    body MEDIUMTEXT NOT NULL,
+    html BOOLEAN NOT NULL DEFAULT TRUE,
+    -- PENDING, SENDING, SENT o DEAD (reintentos agotados)
+    status VARCHAR(16) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME NOT NULL,
+    -- Reserva del dispatcher que lo está enviando; caduca si el proceso se cae
+    claim_token VARCHAR(36) NULL,
+    claimed_until DATETIME NULL,
+    last_error VARCHAR(1000) NULL,
+    created_at DATETIME NOT NULL,
+    sent_at DATETIME NULL,
+    -- Índice para buscar los mensajes listos para enviar
+    INDEX idx_mail_outbox_due (status, next_attempt_at),
+    INDEX idx_mail_outbox_claim (claim_token)
+    );
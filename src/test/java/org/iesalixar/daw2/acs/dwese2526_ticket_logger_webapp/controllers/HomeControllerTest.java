@@ -5,6 +5,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services.ReferenceDataVersionService;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 
@@ -35,6 +37,9 @@ class HomeControllerTest { // Clase de test (JUnit 5 no requiere public)
     @Autowired
     private MockMvc mockMvc; // MockMvc inyectado por Spring para simular peticiones HTTP
 
+    @MockitoBean // WebConfig registra el interceptor de ETag, que depende de este servicio
+    private ReferenceDataVersionService referenceDataVersionService;
+
 
     /**
      * Comprueba el caso más básico:
@@ -0,0 +1,163 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.MailOutboxMessage;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.repositories.MailOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test de integración del dispatcher de {@code mail_outbox} contra un servidor SMTP embebido
+ * (GreenMail). La base de datos se simula con Mockito; el envío SMTP es real.
+ */
+@ExtendWith(MockitoExtension.class)
+class MailOutboxDispatcherImplTest {
+
+    private static final int BATCH_SIZE = 20;
+    private static final int MAX_ATTEMPTS = 3;
+
+    // Servidor SMTP local en un puerto libre, reiniciado en cada test
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP.dynamicPort());
+
+    @Mock // Bandeja de salida simulada: solo interesa qué estados se registran
+    private MailOutboxRepository mailOutboxRepository;
+
+    private MailOutboxDispatcherImpl dispatcher;
+
+
+    @BeforeEach
+    void setUp() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(greenMail.getSmtp().getPort());
+        mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+        mailSender.getJavaMailProperties().put("mail.smtp.timeout", "2000");
+
+        dispatcher = new MailOutboxDispatcherImpl();
+        ReflectionTestUtils.setField(dispatcher, "mailOutboxRepository", mailOutboxRepository);
+        ReflectionTestUtils.setField(dispatcher, "mailSender", mailSender);
+        ReflectionTestUtils.setField(dispatcher, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatcher, "defaultFrom", "noreply@example.com");
+        ReflectionTestUtils.setField(dispatcher, "batchSize", BATCH_SIZE);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoff", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(dispatcher, "maxBackoff", Duration.ofHours(1));
+        ReflectionTestUtils.setField(dispatcher, "claimTimeout", Duration.ofMinutes(5));
+        dispatcher.init();
+    }
+
+    private MailOutboxMessage message(long id, String to, int attempts) {
+        MailOutboxMessage message = new MailOutboxMessage();
+        message.setId(id);
+        message.setRecipient(to);
+        message.setSubject("Asunto " + id);
+        message.setBody("<p>Cuerpo " + id + "</p>");
+        message.setHtml(true);
+        message.setStatus(MailOutboxMessage.Status.SENDING);
+        message.setAttempts(attempts);
+        return message;
+    }
+
+    private void givenClaimed(List<MailOutboxMessage> batch) {
+        when(mailOutboxRepository.claimDue(anyString(), any(), any(), eq(BATCH_SIZE))).thenReturn(batch.size());
+        when(mailOutboxRepository.findByClaimTokenOrderById(anyString())).thenReturn(batch);
+    }
+
+
+    @Test
+    @DisplayName("dispatchBatch entrega el lote reservado por SMTP y lo marca como enviado")
+    void dispatchBatch_deliversClaimedMessages() throws Exception {
+        givenClaimed(List.of(message(1L, "ana@example.com", 0), message(2L, "luis@example.com", 0)));
+
+        int claimed = dispatcher.dispatchBatch();
+
+        assertEquals(2, claimed);
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(2, received.length);
+        assertEquals("Asunto 1", received[0].getSubject());
+        assertEquals("ana@example.com", received[0].getAllRecipients()[0].toString());
+        verify(mailOutboxRepository).markSent(eq(List.of(1L, 2L)), any(LocalDateTime.class));
+        verify(mailOutboxRepository, never()).markFailed(any(), any(), anyInt(), any(), anyString());
+    }
+
+
+    @Test
+    @DisplayName("dispatchBatch no consulta el lote si no hay nada pendiente")
+    void dispatchBatch_nothingDue_returnsZero() {
+        when(mailOutboxRepository.claimDue(anyString(), any(), any(), eq(BATCH_SIZE))).thenReturn(0);
+
+        assertEquals(0, dispatcher.dispatchBatch());
+
+        verify(mailOutboxRepository, never()).findByClaimTokenOrderById(anyString());
+        assertEquals(0, greenMail.getReceivedMessages().length);
+    }
+
+
+    @Test
+    @DisplayName("Con el SMTP caído el mensaje se reprograma con espera exponencial")
+    void dispatchBatch_smtpDown_schedulesRetry() {
+        givenClaimed(List.of(message(1L, "ana@example.com", 1)));
+        greenMail.stop();
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatchBatch();
+
+        // Segundo intento fallido: el siguiente llega tras 30s * 2
+        ArgumentCaptor<LocalDateTime> next = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(mailOutboxRepository).markFailed(eq(1L), eq(MailOutboxMessage.Status.PENDING), eq(2),
+                next.capture(), anyString());
+        verify(mailOutboxRepository, never()).markSent(anyCollection(), any());
+        assertTrue(!next.getValue().isBefore(before.plusMinutes(1)));
+        assertTrue(next.getValue().isBefore(LocalDateTime.now().plusMinutes(1).plusSeconds(1)));
+    }
+
+
+    @Test
+    @DisplayName("Al agotar los reintentos el mensaje queda como DEAD")
+    void dispatchBatch_lastAttempt_deadLetters() {
+        givenClaimed(List.of(message(1L, "ana@example.com", MAX_ATTEMPTS - 1)));
+        greenMail.stop();
+
+        dispatcher.dispatchBatch();
+
+        verify(mailOutboxRepository).markFailed(eq(1L), eq(MailOutboxMessage.Status.DEAD), eq(MAX_ATTEMPTS),
+                any(LocalDateTime.class), anyString());
+        verify(mailOutboxRepository, never()).markSent(anyCollection(), any());
+    }
+
+
+    @Test
+    @DisplayName("La espera entre reintentos se duplica hasta el tope")
+    void backoff_isExponentialAndCapped() {
+        assertEquals(Duration.ofSeconds(30), dispatcher.backoff(1));
+        assertEquals(Duration.ofMinutes(2), dispatcher.backoff(3));
+        assertEquals(Duration.ofHours(1), dispatcher.backoff(20));
+    }
+}
@@ -0,0 +1,149 @@
+package org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.dtos.UserListItemDTO;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.Role;
+import org.iesalixar.daw2.acs.dwese2526_ticket_logger_webapp.entities.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test de {@link UserServiceImpl#listSlice} contra una base de datos real (H2 embebida).
+ * <p>
+ * Cuenta las sentencias SQL preparadas por Hibernate ({@link Statistics#getPrepareStatementCount()}),
+ * así que detecta un N+1 en la carga de roles: el listado debe lanzar siempre 2 sentencias
+ * (usuarios + roles en bloque), sea cual sea el tamaño de la página.
+ * </p>
+ */
+@DataJpaTest
+@Import(UserServiceImpl.class)
+@TestPropertySource(properties = {
+        // @DataJpaTest sustituye el datasource por H2, pero application.properties sigue resolviéndose
+        "DB_URL=jdbc:h2:mem:users", "DB_USER=sa", "DB_PASSWORD=", "DB_DRIVER=org.h2.Driver",
+        // El schema.sql es de MariaDB: en H2 el esquema lo genera Hibernate a partir de las entidades
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class UserServiceImplTest {
+
+    @Autowired
+    private UserServiceImpl userService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // Colaboradores que listSlice no usa
+    @MockitoBean
+    private PasswordEncoder passwordEncoder;
+
+    @MockitoBean
+    private EntityCountService entityCountService;
+
+    @MockitoBean
+    private UserDetailsCacheService userDetailsCacheService;
+
+    @MockitoBean
+    private LoginThrottleService loginThrottleService;
+
+    @MockitoBean
+    private FileStorageService fileStorageService;
+
+    private Role userRole;
+    private Role adminRole;
+
+    @BeforeEach
+    void setUp() {
+        userRole = entityManager.persist(new Role("ROLE_USER", "Usuario", null));
+        adminRole = entityManager.persist(new Role("ROLE_ADMIN", "Administrador", null));
+    }
+
+    /** Guarda {@code count} usuarios con ROLE_USER; el primero (por email) también con ROLE_ADMIN. */
+    private void givenUsers(int count) {
+        for (int i = 1; i <= count; i++) {
+            User user = new User();
+            user.setEmail(String.format("user%03d@example.com", i));
+            user.setPasswordHash("hash");
+            user.setActive(true);
+            user.setAccountNonLocked(true);
+            user.getRoles().add(userRole);
+            if (i == 1) {
+                user.getRoles().add(adminRole);
+            }
+            entityManager.persist(user);
+        }
+        // Los INSERT no cuentan: se vacía el contexto antes de medir
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /** Lista la primera página de {@code size} usuarios y devuelve cuántas sentencias SQL ha preparado. */
+    private long statementsForPageOf(int size) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Slice<UserListItemDTO> slice = userService.listSlice(PageRequest.of(0, size, Sort.by("email")));
+
+        long statements = statistics.getPrepareStatementCount();
+        assertEquals(size, slice.getNumberOfElements());
+        // Los roles de la consulta en bloque se reparten por usuario
+        assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), slice.getContent().get(0).getRoles());
+        if (size > 1) {
+            assertEquals(Set.of("ROLE_USER"), slice.getContent().get(1).getRoles());
+        }
+        return statements;
+    }
+
+    @Test
+    @DisplayName("listSlice: una página de 50 usuarios con roles lanza 2 sentencias SQL")
+    void listSlice_fiftyUsers_twoStatements() {
+        givenUsers(60);
+
+        assertEquals(2, statementsForPageOf(50));
+    }
+
+    @Test
+    @DisplayName("listSlice: el número de sentencias SQL no depende del tamaño de la página")
+    void listSlice_statementCountIsConstant() {
+        givenUsers(60);
+
+        long forOne = statementsForPageOf(1);
+        entityManager.clear();
+        long forFifty = statementsForPageOf(50);
+
+        assertEquals(forOne, forFifty);
+    }
+
+    @Test
+    @DisplayName("listSlice: una página vacía no consulta los roles")
+    void listSlice_emptyPage_skipsRolesQuery() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Slice<UserListItemDTO> slice = userService.listSlice(PageRequest.of(0, 50));
+
+        assertEquals(0, slice.getNumberOfElements());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}